@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.ext.search.benchmark;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.cxf.jaxrs.ext.search.jpa.Book;
+import org.apache.cxf.jaxrs.ext.search.jpa.Name;
+import org.apache.cxf.jaxrs.ext.search.jpa.OwnerAddress;
+import org.apache.cxf.jaxrs.ext.search.jpa.OwnerInfo;
+
+/**
+ * Expressions and beans shared by the benchmarks, the nested model is the one
+ * used by the JPA visitor tests.
+ */
+final class BenchmarkData {
+    
+    static final String FIQL_SIMPLE = "id==10";
+    static final String FIQL_NESTED = "bookTitle==num1*;(ownerInfo.name.name==Fred,id=gt=500);"
+        + "address.street!=Street2";
+    static final String FIQL_COUNT = "count(authors)=gt=1;bookTitle==num*";
+    static final String FIQL_LARGE = fiqlIds(200);
+    
+    static final String ODATA_SIMPLE = "id eq 10";
+    static final String ODATA_NESTED = "bookTitle eq 'num10' and (ownerInfo.name.name eq 'Fred' or id gt 500)"
+        + " and address.street ne 'Street2'";
+    static final String ODATA_LARGE = odataIds(200);
+    
+    private BenchmarkData() {
+        
+    }
+    
+    static List<Book> books(int size) {
+        List<Book> books = new ArrayList<Book>(size);
+        String[] owners = {"Fred", "Barry", "Bill"};
+        for (int i = 0; i < size; i++) {
+            Book b = new Book();
+            b.setId(i);
+            b.setBookTitle("num" + i);
+            b.setAddress(new OwnerAddress("Street" + (i % 10)));
+            OwnerInfo info = new OwnerInfo(new Name(owners[i % owners.length]));
+            info.setDateOfBirth(new Date(i * 86400000L));
+            b.setOwnerInfo(info);
+            for (int j = 0; j < i % 4; j++) {
+                b.getAuthors().add("Author" + j);
+            }
+            books.add(b);
+        }
+        return books;
+    }
+    
+    private static String fiqlIds(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("id==").append(i * 7);
+        }
+        return sb.toString();
+    }
+    
+    private static String odataIds(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(" or ");
+            }
+            sb.append("id eq ").append(i * 7);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.ext.search.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cxf.jaxrs.ext.search.SearchCondition;
+import org.apache.cxf.jaxrs.ext.search.SearchConditionCompiler;
+import org.apache.cxf.jaxrs.ext.search.SearchConditionFilter;
+import org.apache.cxf.jaxrs.ext.search.fiql.FiqlParser;
+import org.apache.cxf.jaxrs.ext.search.jpa.Book;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * In-memory matching with {@link SearchCondition#findAll(java.util.Collection)},
+ * the parsed conditions against their compiled versions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FindAllBenchmark {
+    
+    @Param({"100", "10000" })
+    private int size;
+    
+    private List<Book> books;
+    private SearchCondition<Book> nested;
+    private SearchCondition<Book> count;
+    private SearchCondition<Book> large;
+    private SearchCondition<Book> compiledNested;
+    private SearchCondition<Book> compiledCount;
+    private SearchCondition<Book> compiledLarge;
+    private ExecutorService executor;
+    
+    @Setup
+    public void setUp() {
+        books = BenchmarkData.books(size);
+        FiqlParser<Book> parser = new FiqlParser<Book>(Book.class);
+        nested = parser.parse(BenchmarkData.FIQL_NESTED);
+        count = parser.parse(BenchmarkData.FIQL_COUNT);
+        large = parser.parse(BenchmarkData.FIQL_LARGE);
+        compiledNested = SearchConditionCompiler.compile(nested);
+        compiledCount = SearchConditionCompiler.compile(count);
+        compiledLarge = SearchConditionCompiler.compile(large);
+        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    }
+    
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+    
+    @Benchmark
+    public List<Book> nested() {
+        return nested.findAll(books);
+    }
+    
+    @Benchmark
+    public List<Book> count() {
+        return count.findAll(books);
+    }
+    
+    @Benchmark
+    public List<Book> large() {
+        return large.findAll(books);
+    }
+    
+    @Benchmark
+    public List<Book> compiledNested() {
+        return compiledNested.findAll(books);
+    }
+    
+    @Benchmark
+    public List<Book> compiledCount() {
+        return compiledCount.findAll(books);
+    }
+    
+    @Benchmark
+    public List<Book> compiledLarge() {
+        return compiledLarge.findAll(books);
+    }
+    
+    @Benchmark
+    public List<Book> compiledLargeParallel() {
+        return SearchConditionFilter.findAll(compiledLarge, books, executor, 1000);
+    }
+    
+    @Benchmark
+    public List<Book> compiledNestedFirst() {
+        return SearchConditionFilter.findFirst(compiledNested, books, 10);
+    }
+}
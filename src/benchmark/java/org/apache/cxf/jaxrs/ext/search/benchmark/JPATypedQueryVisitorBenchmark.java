@@ -0,0 +1,150 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.ext.search.benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import javax.persistence.TypedQuery;
+
+import org.apache.cxf.jaxrs.ext.search.SearchCondition;
+import org.apache.cxf.jaxrs.ext.search.fiql.FiqlParser;
+import org.apache.cxf.jaxrs.ext.search.jpa.Book;
+import org.apache.cxf.jaxrs.ext.search.jpa.JPAQueryTemplate;
+import org.apache.cxf.jaxrs.ext.search.jpa.JPATypedQueryVisitor;
+import org.apache.cxf.jaxrs.ext.search.jpa.Library;
+import org.apache.cxf.jaxrs.ext.search.visitor.QueryTemplateCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Translation into JPA typed queries, with and without their execution against
+ * the in-memory HSQL database configured by the "testUnitHibernate" unit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JPATypedQueryVisitorBenchmark {
+    
+    private Connection connection;
+    private EntityManagerFactory emFactory;
+    private EntityManager em;
+    
+    private SearchCondition<Book> nested;
+    private SearchCondition<Book> count;
+    private SearchCondition<Book> large;
+    private JPATypedQueryVisitor<Book> cachingVisitor;
+    
+    @Setup
+    public void setUp() throws Exception {
+        Class.forName("org.hsqldb.jdbcDriver");
+        connection = DriverManager.getConnection("jdbc:hsqldb:mem:books-jpa", "sa", "");
+        emFactory = Persistence.createEntityManagerFactory("testUnitHibernate");
+        em = emFactory.createEntityManager();
+        
+        em.getTransaction().begin();
+        Library lib = new Library();
+        lib.setId(1);
+        lib.setAddress("town");
+        em.persist(lib);
+        for (Book b : BenchmarkData.books(1000)) {
+            b.setLibrary(lib);
+            em.persist(b);
+        }
+        em.getTransaction().commit();
+        
+        FiqlParser<Book> parser = new FiqlParser<Book>(Book.class);
+        nested = parser.parse(BenchmarkData.FIQL_NESTED);
+        count = parser.parse(BenchmarkData.FIQL_COUNT);
+        large = parser.parse(BenchmarkData.FIQL_LARGE);
+        
+        cachingVisitor = new JPATypedQueryVisitor<Book>(em, Book.class);
+        cachingVisitor.setParameterized(true);
+        cachingVisitor.setTemplateCache(new QueryTemplateCache<JPAQueryTemplate<Book>>());
+    }
+    
+    @TearDown
+    public void tearDown() throws Exception {
+        em.close();
+        emFactory.close();
+        connection.createStatement().execute("SHUTDOWN");
+    }
+    
+    @Benchmark
+    public TypedQuery<Book> translateNested() {
+        return toQuery(nested);
+    }
+    
+    @Benchmark
+    public TypedQuery<Book> translateCount() {
+        return toQuery(count);
+    }
+    
+    @Benchmark
+    public TypedQuery<Book> translateLarge() {
+        return toQuery(large);
+    }
+    
+    @Benchmark
+    public List<Book> queryNested() {
+        return toQuery(nested).getResultList();
+    }
+    
+    @Benchmark
+    public List<Book> queryLarge() {
+        return toQuery(large).getResultList();
+    }
+    
+    @Benchmark
+    public TypedQuery<Book> translateNestedCached() {
+        return toCachedQuery(nested);
+    }
+    
+    @Benchmark
+    public TypedQuery<Book> translateLargeCached() {
+        return toCachedQuery(large);
+    }
+    
+    @Benchmark
+    public List<Book> queryNestedCached() {
+        return toCachedQuery(nested).getResultList();
+    }
+    
+    private TypedQuery<Book> toCachedQuery(SearchCondition<Book> sc) {
+        sc.accept(cachingVisitor);
+        return cachingVisitor.getQuery();
+    }
+    
+    private TypedQuery<Book> toQuery(SearchCondition<Book> sc) {
+        JPATypedQueryVisitor<Book> visitor = new JPATypedQueryVisitor<Book>(em, Book.class);
+        sc.accept(visitor);
+        return visitor.getQuery();
+    }
+}
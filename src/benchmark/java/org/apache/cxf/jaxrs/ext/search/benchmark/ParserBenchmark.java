@@ -0,0 +1,98 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.ext.search.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cxf.jaxrs.ext.search.SearchCondition;
+import org.apache.cxf.jaxrs.ext.search.fiql.FiqlParser;
+import org.apache.cxf.jaxrs.ext.search.jpa.Book;
+import org.apache.cxf.jaxrs.ext.search.odata.ODataParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ParserBenchmark {
+    
+    private final FiqlParser<Book> fiqlParser = new FiqlParser<Book>(Book.class);
+    // the parser replaced by FiqlParser, parses the same expressions for the comparison
+    private final LegacyFiqlParser<Book> legacyFiqlParser = new LegacyFiqlParser<Book>(Book.class);
+    private final ODataParser<Book> odataParser = new ODataParser<Book>(Book.class);
+    
+    @Benchmark
+    public SearchCondition<Book> fiqlSimple() {
+        return fiqlParser.parse(BenchmarkData.FIQL_SIMPLE);
+    }
+    
+    @Benchmark
+    public SearchCondition<Book> fiqlNested() {
+        return fiqlParser.parse(BenchmarkData.FIQL_NESTED);
+    }
+    
+    @Benchmark
+    public SearchCondition<Book> fiqlCount() {
+        return fiqlParser.parse(BenchmarkData.FIQL_COUNT);
+    }
+    
+    @Benchmark
+    public SearchCondition<Book> fiqlLarge() {
+        return fiqlParser.parse(BenchmarkData.FIQL_LARGE);
+    }
+    
+    @Benchmark
+    public SearchCondition<Book> legacyFiqlSimple() {
+        return legacyFiqlParser.parse(BenchmarkData.FIQL_SIMPLE);
+    }
+    
+    @Benchmark
+    public SearchCondition<Book> legacyFiqlNested() {
+        return legacyFiqlParser.parse(BenchmarkData.FIQL_NESTED);
+    }
+    
+    @Benchmark
+    public SearchCondition<Book> legacyFiqlCount() {
+        return legacyFiqlParser.parse(BenchmarkData.FIQL_COUNT);
+    }
+    
+    @Benchmark
+    public SearchCondition<Book> legacyFiqlLarge() {
+        return legacyFiqlParser.parse(BenchmarkData.FIQL_LARGE);
+    }
+    
+    @Benchmark
+    public SearchCondition<Book> odataSimple() {
+        return odataParser.parse(BenchmarkData.ODATA_SIMPLE);
+    }
+    
+    @Benchmark
+    public SearchCondition<Book> odataNested() {
+        return odataParser.parse(BenchmarkData.ODATA_NESTED);
+    }
+    
+    @Benchmark
+    public SearchCondition<Book> odataLarge() {
+        return odataParser.parse(BenchmarkData.ODATA_LARGE);
+    }
+}
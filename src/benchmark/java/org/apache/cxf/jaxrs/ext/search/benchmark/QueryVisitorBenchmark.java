@@ -0,0 +1,108 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.ext.search.benchmark;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cxf.jaxrs.ext.search.SearchBean;
+import org.apache.cxf.jaxrs.ext.search.SearchCondition;
+import org.apache.cxf.jaxrs.ext.search.fiql.FiqlParser;
+import org.apache.cxf.jaxrs.ext.search.jpa.Book;
+import org.apache.cxf.jaxrs.ext.search.lucene.LuceneQueryVisitor;
+import org.apache.cxf.jaxrs.ext.search.sql.SQLPrinterVisitor;
+import org.apache.lucene.search.Query;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Translation of the already parsed conditions into SQL and Lucene queries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueryVisitorBenchmark {
+    
+    private SearchCondition<Book> sqlNested;
+    private SearchCondition<Book> sqlLarge;
+    private SearchCondition<SearchBean> luceneNested;
+    private SearchCondition<SearchBean> luceneLarge;
+    private LuceneQueryVisitor<SearchBean> sharedLuceneVisitor;
+    
+    @Setup
+    public void setUp() {
+        FiqlParser<Book> parser = new FiqlParser<Book>(Book.class);
+        sqlNested = parser.parse("bookTitle==num1*;(id=lt=10,id=gt=500);bookTitle!=num2");
+        sqlLarge = parser.parse(BenchmarkData.FIQL_LARGE);
+        
+        FiqlParser<SearchBean> beanParser = new FiqlParser<SearchBean>(SearchBean.class);
+        luceneNested = beanParser.parse("contents==num1*;(intfield=lt=10,intfield=gt=500);contents!=num2");
+        luceneLarge = beanParser.parse(BenchmarkData.FIQL_LARGE.replace("id==", "intfield=="));
+        sharedLuceneVisitor = createLuceneVisitor();
+    }
+    
+    @Benchmark
+    public String sqlNested() {
+        return toSql(sqlNested);
+    }
+    
+    @Benchmark
+    public String sqlLarge() {
+        return toSql(sqlLarge);
+    }
+    
+    @Benchmark
+    public Query luceneNested() {
+        return toLucene(luceneNested);
+    }
+    
+    @Benchmark
+    public Query luceneLarge() {
+        return toLucene(luceneLarge);
+    }
+    
+    @Benchmark
+    public Query luceneLargeShared() {
+        return sharedLuceneVisitor.toQuery(luceneLarge);
+    }
+    
+    private static String toSql(SearchCondition<Book> sc) {
+        SQLPrinterVisitor<Book> visitor = new SQLPrinterVisitor<Book>("books");
+        sc.accept(visitor);
+        return visitor.getQuery();
+    }
+    
+    private static Query toLucene(SearchCondition<SearchBean> sc) {
+        LuceneQueryVisitor<SearchBean> visitor = createLuceneVisitor();
+        sc.accept(visitor);
+        return visitor.getQuery();
+    }
+    
+    private static LuceneQueryVisitor<SearchBean> createLuceneVisitor() {
+        LuceneQueryVisitor<SearchBean> visitor = new LuceneQueryVisitor<SearchBean>();
+        visitor.setPrimitiveFieldTypeMap(
+            Collections.<String, Class<?>>singletonMap("intfield", Integer.class));
+        return visitor;
+    }
+}
@@ -41,8 +41,9 @@ public abstract class AbstractSearchConditionParser<T> implements SearchConditio
     
     protected final Map<String, String> contextProperties;
     protected final Class<T> conditionClass;
-    protected Beanspector<T> beanspector;       
-    protected Map<String, String> beanPropertiesMap;
+    // shared by concurrent parse calls, only the class metadata may be used 
+    protected final Beanspector<T> beanspector;       
+    protected final Map<String, String> beanPropertiesMap;
     
     
     protected AbstractSearchConditionParser(Class<T> tclass) {
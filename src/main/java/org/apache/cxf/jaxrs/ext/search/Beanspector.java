@@ -19,6 +19,9 @@
 package org.apache.cxf.jaxrs.ext.search;
 
 import java.beans.IntrospectionException;
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
@@ -28,19 +31,28 @@ import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 import org.apache.cxf.jaxrs.ext.search.collections.CollectionCheckInfo;
 
 /**
  * Bean introspection utility.
+ * <p>
+ * The getters and setters of a given class are introspected once and shared by all 
+ * the Beanspector instances created for this class.
+ * </p>
  */
 public class Beanspector<T> {
-    private final Map< Class< ? >, Class< ? > > primitiveWrappers = getPrimitiveWrappers();        
+    private static final Map< Class< ? >, Class< ? > > PRIMITIVE_WRAPPERS = getPrimitiveWrappers();
+    // The metadata refers to the class through its methods, so the values keep the class keys reachable, 
+    // see newReference for how the classes of the other class loaders are still allowed to be unloaded
+    private static final Map<Class<?>, Reference<BeanMetadata>> METADATA = 
+        Collections.synchronizedMap(new WeakHashMap<Class<?>, Reference<BeanMetadata>>());
 
     private Class<T> tclass;
     private T tobj;
-    private Map<String, Method> getters = new LinkedHashMap<String, Method>();
-    private Map<String, Method> setters = new LinkedHashMap<String, Method>();
+    private Map<String, Method> getters;
+    private Map<String, Method> setters;
 
     public Beanspector(Class<T> tclass) {
         if (tclass == null) {
@@ -63,25 +75,46 @@ public class Beanspector<T> {
         if (tclass == null) {
             tclass = (Class<T>)tobj.getClass();
         }
-        for (Method m : tclass.getMethods()) {
-            if (isGetter(m)) {
-                getters.put(getPropertyName(m), m);
-            } else if (isSetter(m)) {
-                setters.put(getPropertyName(m), m);
-            }
+        BeanMetadata metadata = getMetadata(tclass);
+        getters = metadata.getters;
+        setters = metadata.setters;
+    }
+
+    private static BeanMetadata getMetadata(Class<?> cls) {
+        Reference<BeanMetadata> ref = METADATA.get(cls);
+        BeanMetadata metadata = ref == null ? null : ref.get();
+        if (metadata == null) {
+            // concurrent introspections of the same class produce equivalent metadata
+            metadata = new BeanMetadata(cls);
+            METADATA.put(cls, newReference(cls, metadata));
+        }
+        return metadata;
+    }
+    
+    /**
+     * The metadata of the classes loaded by the class loader of this class or by its parents 
+     * is softly referenced, these classes can not be unloaded before this class anyway. 
+     * The metadata of the other classes is only weakly referenced, so that it does not keep 
+     * their class loaders reachable, it is only shared while it is used by the Beanspector instances. 
+     */
+    private static Reference<BeanMetadata> newReference(Class<?> cls, BeanMetadata metadata) {
+        return isSharedClassLoader(cls.getClassLoader()) 
+            ? new SoftReference<BeanMetadata>(metadata) : new WeakReference<BeanMetadata>(metadata);
+    }
+    
+    /**
+     * Returns true if the loader is the bootstrap one, the class loader of this class or one of its parents
+     */
+    static boolean isSharedClassLoader(ClassLoader loader) {
+        if (loader == null) {
+            return true;
         }
-        // check type equality for getter-setter pairs
-        Set<String> pairs = new HashSet<String>(getters.keySet());
-        pairs.retainAll(setters.keySet());
-        for (String accessor : pairs) {
-            Class<?> getterClass = getters.get(accessor).getReturnType();
-            Class<?> setterClass = setters.get(accessor).getParameterTypes()[0];
-            if (!getterClass.equals(setterClass)) {
-                throw new IllegalArgumentException(String
-                    .format("Accessor '%s' type mismatch, getter type is %s while setter type is %s",
-                            accessor, getterClass.getName(), setterClass.getName()));
+        for (ClassLoader cl = Beanspector.class.getClassLoader(); cl != null; cl = cl.getParent()) {
+            if (cl == loader) {
+                return true;
             }
         }
+        return false;
     }
 
     public T getBean() {
@@ -158,6 +191,10 @@ public class Beanspector<T> {
         }
     }
 
+    public Method getGetter(String getterName) {
+        return getters.get(getterName.toLowerCase());
+    }
+
     public Object getValue(String getterName) throws Throwable {
         return getValue(getters.get(getterName));
     }
@@ -172,7 +209,7 @@ public class Beanspector<T> {
         }
     }
 
-    private Map< Class< ? >, Class< ? > > getPrimitiveWrappers() {
+    private static Map< Class< ? >, Class< ? > > getPrimitiveWrappers() {
         final Map< Class< ? >, Class< ? > > wrappers = new HashMap< Class< ? >, Class< ? > >();
         
         wrappers.put(boolean.class, Boolean.class);
@@ -187,16 +224,16 @@ public class Beanspector<T> {
         return wrappers;
     }
     
-    private Class< ? > primitiveToWrapper(final Class< ? > cls) {
-        return cls.isPrimitive() ?  primitiveWrappers.get(cls) : cls;
+    private static Class< ? > primitiveToWrapper(final Class< ? > cls) {
+        return cls.isPrimitive() ?  PRIMITIVE_WRAPPERS.get(cls) : cls;
     }
     
-    private boolean isGetter(Method m) {
+    private static boolean isGetter(Method m) {
         return m.getParameterTypes().length == 0
                && (m.getName().startsWith("get") || m.getName().startsWith("is"));
     }
 
-    private String getPropertyName(Method m) {
+    private static String getPropertyName(Method m) {
         // at this point the method is either getter or setter
         String result = m.getName().toLowerCase();
 
@@ -209,11 +246,44 @@ public class Beanspector<T> {
 
     }
 
-    private boolean isSetter(Method m) {
+    private static boolean isSetter(Method m) {
         return m.getReturnType().equals(void.class) && m.getParameterTypes().length == 1
                && (m.getName().startsWith("set") || m.getName().startsWith("is"));
     }
 
+    /**
+     * Immutable getters and setters of a given class 
+     */
+    private static class BeanMetadata {
+        private final Map<String, Method> getters;
+        private final Map<String, Method> setters;
+        
+        BeanMetadata(Class<?> cls) {
+            Map<String, Method> theGetters = new LinkedHashMap<String, Method>();
+            Map<String, Method> theSetters = new LinkedHashMap<String, Method>();
+            for (Method m : cls.getMethods()) {
+                if (isGetter(m)) {
+                    theGetters.put(getPropertyName(m), m);
+                } else if (isSetter(m)) {
+                    theSetters.put(getPropertyName(m), m);
+                }
+            }
+            // check type equality for getter-setter pairs
+            Set<String> pairs = new HashSet<String>(theGetters.keySet());
+            pairs.retainAll(theSetters.keySet());
+            for (String accessor : pairs) {
+                Class<?> getterClass = theGetters.get(accessor).getReturnType();
+                Class<?> setterClass = theSetters.get(accessor).getParameterTypes()[0];
+                if (!getterClass.equals(setterClass)) {
+                    throw new IllegalArgumentException(String
+                        .format("Accessor '%s' type mismatch, getter type is %s while setter type is %s",
+                                accessor, getterClass.getName(), setterClass.getName()));
+                }
+            }
+            this.getters = Collections.unmodifiableMap(theGetters);
+            this.setters = Collections.unmodifiableMap(theSetters);
+        }
+    }
     
     public static class TypeInfo {
         private Class<?> cls;
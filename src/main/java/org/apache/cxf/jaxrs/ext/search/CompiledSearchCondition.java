@@ -0,0 +1,84 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.ext.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * SearchCondition produced by {@link SearchConditionCompiler}. Matching is done by
+ * the compiled evaluator while the original condition is still used for 
+ * the introspection and visitors.
+ * 
+ * @param <T> type of search condition.
+ */
+public class CompiledSearchCondition<T> implements SearchCondition<T> {
+
+    private final SearchCondition<T> condition;
+    private final SearchConditionCompiler.Evaluator<T> evaluator;
+    
+    CompiledSearchCondition(SearchCondition<T> condition, SearchConditionCompiler.Evaluator<T> evaluator) {
+        this.condition = condition;
+        this.evaluator = evaluator;
+    }
+    
+    /**
+     * Returns the condition this instance has been compiled from
+     * @return the original condition
+     */
+    public SearchCondition<T> getCompiledCondition() {
+        return condition;
+    }
+    
+    public boolean isMet(T pojo) {
+        return evaluator.isMet(pojo);
+    }
+
+    public List<T> findAll(Collection<T> pojos) {
+        List<T> result = new ArrayList<T>();
+        for (T pojo : pojos) {
+            if (evaluator.isMet(pojo)) {
+                result.add(pojo);
+            }
+        }
+        return result;
+    }
+
+    public T getCondition() {
+        return condition.getCondition();
+    }
+
+    public PrimitiveStatement getStatement() {
+        return condition.getStatement();
+    }
+
+    public List<SearchCondition<T>> getSearchConditions() {
+        return condition.getSearchConditions();
+    }
+
+    public ConditionType getConditionType() {
+        return condition.getConditionType();
+    }
+
+    public void accept(SearchConditionVisitor<T, ?> visitor) {
+        // visitors may check the actual type of the condition, i.e. OrSearchCondition
+        condition.accept(visitor);
+    }
+}
@@ -0,0 +1,192 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.ext.search;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.cxf.common.util.Base64Exception;
+import org.apache.cxf.common.util.Base64Utility;
+
+/**
+ * Encodes the ordering values of the last row of the page into the opaque continuation 
+ * token and decodes them when the next page is requested, see the keyset pagination support 
+ * of the JPA and SQL visitors. The token is URL safe, the strings, numbers, booleans 
+ * and dates are supported.
+ */
+public final class KeysetToken {
+    private static final byte STRING = 'S';
+    private static final byte INTEGER = 'I';
+    private static final byte LONG = 'J';
+    private static final byte SHORT = 'H';
+    private static final byte BYTE = 'B';
+    private static final byte DOUBLE = 'D';
+    private static final byte FLOAT = 'F';
+    private static final byte BIG_INTEGER = 'N';
+    private static final byte BIG_DECIMAL = 'M';
+    private static final byte BOOLEAN = 'Z';
+    private static final byte DATE = 'T';
+    private static final byte TIMESTAMP = 'P';
+    
+    private KeysetToken() {
+        
+    }
+    
+    public static String encode(Object... values) {
+        return encode(Arrays.asList(values));
+    }
+    
+    public static String encode(List<?> values) {
+        if (values.size() > 255) {
+            throw new IllegalArgumentException("Too many keyset values");
+        }
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bos);
+        try {
+            out.writeByte(values.size());
+            for (Object value : values) {
+                writeValue(out, value);
+            }
+            out.flush();
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        String token = Base64Utility.encode(bos.toByteArray());
+        return token.replace('+', '-').replace('/', '_').replace("=", "");
+    }
+    
+    /**
+     * Decodes the token
+     * @param token the token created by {@link #encode(List)} 
+     * @return the values
+     * @throws SearchParseException if the token is not valid
+     */
+    public static List<Object> decode(String token) {
+        StringBuilder sb = new StringBuilder(token.replace('-', '+').replace('_', '/'));
+        while (sb.length() % 4 != 0) {
+            sb.append('=');
+        }
+        try {
+            byte[] bytes = Base64Utility.decode(sb.toString());
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            int size = in.readUnsignedByte();
+            List<Object> values = new ArrayList<Object>(size);
+            for (int i = 0; i < size; i++) {
+                values.add(readValue(in));
+            }
+            if (in.available() > 0) {
+                throw new SearchParseException("Invalid keyset token");
+            }
+            return values;
+        } catch (Base64Exception ex) {
+            throw new SearchParseException("Invalid keyset token", ex);
+        } catch (IOException ex) {
+            throw new SearchParseException("Invalid keyset token", ex);
+        } catch (IllegalArgumentException ex) {
+            throw new SearchParseException("Invalid keyset token", ex);
+        }
+    }
+    
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value instanceof String) {
+            out.writeByte(STRING);
+            out.writeUTF((String)value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer)value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long)value);
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeShort((Short)value);
+        } else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte)value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double)value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float)value);
+        } else if (value instanceof BigInteger) {
+            out.writeByte(BIG_INTEGER);
+            out.writeUTF(value.toString());
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(BIG_DECIMAL);
+            out.writeUTF(value.toString());
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean)value);
+        } else if (value instanceof Timestamp) {
+            out.writeByte(TIMESTAMP);
+            out.writeLong(((Timestamp)value).getTime());
+            out.writeInt(((Timestamp)value).getNanos());
+        } else if (value instanceof Date) {
+            out.writeByte(DATE);
+            out.writeLong(((Date)value).getTime());
+        } else {
+            throw new IllegalArgumentException("Keyset value " + value + " is not supported");
+        }
+    }
+    
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+        case STRING:
+            return in.readUTF();
+        case INTEGER:
+            return in.readInt();
+        case LONG:
+            return in.readLong();
+        case SHORT:
+            return in.readShort();
+        case BYTE:
+            return in.readByte();
+        case DOUBLE:
+            return in.readDouble();
+        case FLOAT:
+            return in.readFloat();
+        case BIG_INTEGER:
+            return new BigInteger(in.readUTF());
+        case BIG_DECIMAL:
+            return new BigDecimal(in.readUTF());
+        case BOOLEAN:
+            return in.readBoolean();
+        case TIMESTAMP:
+            Timestamp timestamp = new Timestamp(in.readLong());
+            timestamp.setNanos(in.readInt());
+            return timestamp;
+        case DATE:
+            return new Date(in.readLong());
+        default:
+            throw new SearchParseException("Invalid keyset token");
+        }
+    }
+}
@@ -34,6 +34,7 @@ public class PrimitiveSearchCondition<T> implements SearchCondition<T> {
     private T condition;
     private ConditionType cType;
     private Beanspector<T> beanspector;
+    private TextMatcher textMatcher;
     
     public PrimitiveSearchCondition(String propertyName, 
                                     Object propertyValue,
@@ -56,6 +57,9 @@ public class PrimitiveSearchCondition<T> implements SearchCondition<T> {
             this.beanspector = SearchBean.class.isAssignableFrom(condition.getClass()) 
                 ? null : new Beanspector<T>(condition);
         }
+        if (propertyValue instanceof String) {
+            this.textMatcher = TextMatcher.compile((String)propertyValue);
+        }
     }
     
     public List<T> findAll(Collection<T> pojos) {
@@ -98,11 +102,11 @@ public class PrimitiveSearchCondition<T> implements SearchCondition<T> {
 
     public boolean isMet(T pojo) {
         if (isPrimitive(pojo)) {
-            return compare(pojo, cType, propertyValue);
+            return compare(pojo, cType, propertyValue, textMatcher);
         } else {
             Object lValue = getValue(propertyName, pojo);
             Object rValue = getPrimitiveValue(propertyName, propertyValue);
-            return lValue == null ? false : compare(lValue, cType, rValue);
+            return lValue == null ? false : compare(lValue, cType, rValue, textMatcher);
         }
     }
 
@@ -118,7 +122,8 @@ public class PrimitiveSearchCondition<T> implements SearchCondition<T> {
         Object value;
         try {
             if (beanspector != null) {
-                value = beanspector.swap(pojo).getValue(thePropertyName.toLowerCase());
+                // the getter is invoked directly so that the condition can be shared between threads
+                value = beanspector.getGetter(thePropertyName).invoke(pojo);
             } else {
                 value = ((SearchBean)pojo).get(getter);
             }
@@ -140,8 +145,17 @@ public class PrimitiveSearchCondition<T> implements SearchCondition<T> {
         return pojo.getClass().getName().startsWith("java.lang");
     }
 
+    static boolean compare(Object lval, ConditionType cond, Object rval) {
+        return compare(lval, cond, rval, null);
+    }
+    
+    /**
+     * Compares the values
+     * @param textMatcher the matcher precompiled from the rval string, if null then 
+     *        the string values will be matched with a matcher compiled on the fly  
+     */
     @SuppressWarnings({ "unchecked", "rawtypes" })
-    private boolean compare(Object lval, ConditionType cond, Object rval) {
+    static boolean compare(Object lval, ConditionType cond, Object rval, TextMatcher textMatcher) {
         boolean compares = true;
         if (cond == ConditionType.EQUALS || cond == ConditionType.NOT_EQUALS) {
             if (rval == null) {
@@ -150,7 +164,8 @@ public class PrimitiveSearchCondition<T> implements SearchCondition<T> {
                 compares = false;
             } else {
                 if (lval instanceof String) {
-                    compares = textCompare((String)lval, (String)rval);
+                    TextMatcher matcher = textMatcher != null ? textMatcher : TextMatcher.compile((String)rval);
+                    compares = matcher.matches((String)lval);
                 } else {
                     compares = lval.equals(rval);
                 }
@@ -185,32 +200,6 @@ public class PrimitiveSearchCondition<T> implements SearchCondition<T> {
         return compares;
     }
 
-    private boolean textCompare(String lval, String rval) {
-        // check wild cards
-        boolean starts = false;
-        boolean ends = false;
-        if (rval.charAt(0) == '*') {
-            starts = true;
-            rval = rval.substring(1);
-        }
-        if (rval.charAt(rval.length() - 1) == '*') {
-            ends = true;
-            rval = rval.substring(0, rval.length() - 1);
-        }
-        if (starts || ends) {
-            // wild card tests
-            if (starts && !ends) {
-                return lval.endsWith(rval);
-            } else if (ends && !starts) {
-                return lval.startsWith(rval);
-            } else {
-                return lval.contains(rval);
-            }
-        } else {
-            return lval.equals(rval);
-        }
-    }
-    
     protected static Object getPrimitiveValue(String name, Object value) {
         
         int index = name.indexOf(".");
@@ -0,0 +1,177 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.ext.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of parsed search conditions with an optional time-to-live.
+ * Cached conditions are shared between the threads and must not be modified. 
+ * The conditions are looked up without locking, the cache evicts the least recently used 
+ * conditions approximately: once it is full, the new conditions evict a tenth of the cached ones 
+ * which have not been used for the longest time. 
+ */
+public class SearchConditionCache {
+    public static final int DEFAULT_MAX_SIZE = 1000;
+    
+    private final int maxSize;
+    private final long timeToLive;
+    private final ConcurrentMap<Object, CacheEntry> entries;
+    private final Object evictionLock = new Object();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    
+    public SearchConditionCache() {
+        this(DEFAULT_MAX_SIZE, 0);
+    }
+    
+    /**
+     * Creates the cache
+     * @param maxSize maximum number of the cached conditions
+     * @param timeToLive the time in milliseconds after which the cached condition
+     *        expires, 0 or negative value means the conditions do not expire 
+     */
+    public SearchConditionCache(int maxSize, long timeToLive) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+        this.timeToLive = timeToLive;
+        this.entries = new ConcurrentHashMap<Object, CacheEntry>();
+    }
+    
+    /**
+     * Returns the cached condition
+     * @param key the key
+     * @return the condition or null if it has not been cached or has expired
+     */
+    public SearchCondition<?> get(Object key) {
+        CacheEntry entry = entries.get(key);
+        if (entry != null && entry.isExpired(System.currentTimeMillis())) {
+            if (entries.remove(key, entry)) {
+                evictions.incrementAndGet();
+            }
+            entry = null;
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        entry.lastAccess = System.nanoTime();
+        hits.incrementAndGet();
+        return entry.condition;
+    }
+    
+    public void put(Object key, SearchCondition<?> condition) {
+        long expiresAt = timeToLive > 0 ? System.currentTimeMillis() + timeToLive : Long.MAX_VALUE;
+        entries.put(key, new CacheEntry(condition, expiresAt));
+        if (entries.size() > maxSize) {
+            evict();
+        }
+    }
+    
+    private void evict() {
+        synchronized (evictionLock) {
+            int excess = entries.size() - maxSize;
+            if (excess <= 0) {
+                // evicted by the other thread
+                return;
+            }
+            // the access times keep changing, so they are sorted as they were when the eviction started  
+            List<EvictionCandidate> candidates = new ArrayList<EvictionCandidate>(entries.size());
+            for (Map.Entry<Object, CacheEntry> e : entries.entrySet()) {
+                candidates.add(new EvictionCandidate(e.getKey(), e.getValue()));
+            }
+            Collections.sort(candidates);
+            int count = Math.min(excess + maxSize / 10, candidates.size());
+            for (int i = 0; i < count; i++) {
+                EvictionCandidate candidate = candidates.get(i);
+                if (entries.remove(candidate.key, candidate.entry)) {
+                    evictions.incrementAndGet();
+                }
+            }
+        }
+    }
+    
+    public void clear() {
+        entries.clear();
+    }
+    
+    public int size() {
+        return entries.size();
+    }
+    
+    public int getMaxSize() {
+        return maxSize;
+    }
+    
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+    
+    public long getHitCount() {
+        return hits.get();
+    }
+    
+    public long getMissCount() {
+        return misses.get();
+    }
+    
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+    
+    private static class CacheEntry {
+        private final SearchCondition<?> condition;
+        private final long expiresAt;
+        private volatile long lastAccess = System.nanoTime();
+        
+        CacheEntry(SearchCondition<?> condition, long expiresAt) {
+            this.condition = condition;
+            this.expiresAt = expiresAt;
+        }
+        
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+    
+    private static class EvictionCandidate implements Comparable<EvictionCandidate> {
+        private final Object key;
+        private final CacheEntry entry;
+        private final long lastAccess;
+        
+        EvictionCandidate(Object key, CacheEntry entry) {
+            this.key = key;
+            this.entry = entry;
+            this.lastAccess = entry.lastAccess;
+        }
+        
+        public int compareTo(EvictionCandidate other) {
+            return lastAccess < other.lastAccess ? -1 : lastAccess == other.lastAccess ? 0 : 1;
+        }
+    }
+}
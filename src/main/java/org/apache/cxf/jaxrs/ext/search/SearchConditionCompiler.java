@@ -0,0 +1,552 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.ext.search;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.cxf.jaxrs.ext.search.collections.CollectionCheckCondition;
+import org.apache.cxf.jaxrs.utils.InjectionUtils;
+
+/**
+ * Compiles a parsed SearchCondition tree into a reusable evaluator which
+ * does not introspect the template or the matched beans on every {@link SearchCondition#isMet(Object)} call:
+ * the right-hand values are resolved once and the getters needed to reach 
+ * the (possibly nested) left-hand values are resolved once per bean class.
+ * <p>
+ * The compiled condition is thread-safe and can be used as long as the original one.
+ * Custom SearchCondition implementations found in the tree are evaluated with 
+ * their own isMet implementation.
+ * </p>
+ * <p>
+ * The children of AND and OR conditions are evaluated in the order of their estimated cost,
+ * cheapest first: primitive comparisons, then string comparisons, string prefix or suffix 
+ * and contains matches, nested property paths and collection checks. Custom conditions are never 
+ * moved, the children are only reordered between them. The adaptive compilation additionally 
+ * records how often every child short-circuits its parent and periodically reorders the children
+ * by their cost and the observed selectivity.
+ * </p>
+ * <p>
+ * String values are matched with the {@link TextMatcher} compiled once per condition, 
+ * with the requested TextMatcher flags.
+ * </p>
+ * <pre>
+ * SearchCondition&lt;Book&gt; sc = SearchConditionCompiler.compile(parser.parse("name==CXF*;id=gt=10"));
+ * List&lt;Book&gt; found = sc.findAll(books);
+ * </pre>
+ */
+public final class SearchConditionCompiler {
+    
+    /**
+     * Number of the evaluations after which the adaptive AND and OR conditions reorder their children
+     */
+    public static final int ADAPTIVE_SAMPLE_SIZE = 1024;
+    
+    static final int UNKNOWN_COST = Integer.MAX_VALUE;
+    private static final int PRIMITIVE_COST = 1;
+    private static final int STRING_COST = 2;
+    private static final int PREFIX_COST = 3;
+    private static final int CONTAINS_COST = 4;
+    private static final int NESTED_PATH_COST = 4;
+    private static final int COLLECTION_COST = 16;
+    
+    private SearchConditionCompiler() {
+        
+    }
+    
+    /**
+     * Compiles the condition
+     * @param sc the condition
+     * @return the compiled condition
+     */
+    public static <T> SearchCondition<T> compile(SearchCondition<T> sc) {
+        return compile(sc, false);
+    }
+    
+    /**
+     * Compiles the condition
+     * @param sc the condition
+     * @param adaptive if true then the children of AND and OR conditions will be 
+     *        reordered using the selectivity observed at the matching time 
+     * @return the compiled condition
+     */
+    public static <T> SearchCondition<T> compile(SearchCondition<T> sc, boolean adaptive) {
+        return compile(sc, adaptive, 0);
+    }
+    
+    /**
+     * Compiles the condition
+     * @param sc the condition
+     * @param adaptive if true then the children of AND and OR conditions will be 
+     *        reordered using the selectivity observed at the matching time 
+     * @param textFlags {@link TextMatcher} flags used for the string equality and wildcard checks,
+     *        such as {@link TextMatcher#CASE_INSENSITIVE}
+     * @return the compiled condition
+     */
+    public static <T> SearchCondition<T> compile(SearchCondition<T> sc, boolean adaptive, int textFlags) {
+        if (sc instanceof CompiledSearchCondition) {
+            return sc;
+        }
+        return new CompiledSearchCondition<T>(sc, compileEvaluator(sc, adaptive, textFlags));
+    }
+    
+    static <T> Evaluator<T> compileEvaluator(SearchCondition<T> sc, boolean adaptive, int textFlags) {
+        Class<?> scClass = sc.getClass();
+        PrimitiveStatement statement = sc.getStatement();
+        if (statement != null) {
+            if (scClass == SimpleSearchCondition.class 
+                || scClass == PrimitiveSearchCondition.class 
+                || scClass == CollectionCheckCondition.class) {
+                return compileStatement(sc, statement, textFlags);
+            }
+        } else if (scClass == SimpleSearchCondition.class 
+            || scClass == AndSearchCondition.class 
+            || scClass == OrSearchCondition.class) {
+            List<SearchCondition<T>> conditions = sc.getSearchConditions();
+            ConditionType ct = sc.getConditionType();
+            if (conditions != null && (ct == ConditionType.AND || ct == ConditionType.OR)) {
+                Evaluator<T>[] evaluators = newEvaluators(conditions.size());
+                double[] costs = new double[evaluators.length];
+                for (int i = 0; i < evaluators.length; i++) {
+                    evaluators[i] = compileEvaluator(conditions.get(i), adaptive, textFlags);
+                    costs[i] = evaluators[i].getCost();
+                }
+                evaluators = sort(evaluators, costs);
+                if (adaptive) {
+                    return new AdaptiveEvaluator<T>(evaluators, ct == ConditionType.OR);
+                }
+                return ct == ConditionType.AND ? new AndEvaluator<T>(evaluators) : new OrEvaluator<T>(evaluators);
+            }
+        }
+        return new DelegatingEvaluator<T>(sc);
+    }
+    
+    private static <T> Evaluator<T> compileStatement(SearchCondition<T> sc, PrimitiveStatement statement,
+                                                     int textFlags) {
+        String property = statement.getProperty();
+        ConditionType ct = statement.getCondition();
+        if (ct == null || ct == ConditionType.CUSTOM || ct == ConditionType.AND || ct == ConditionType.OR) {
+            // not supported by the primitive comparison, let the condition report it 
+            return new DelegatingEvaluator<T>(sc);
+        }
+        if (property == null) {
+            return new ValueEvaluator<T>(new Comparison(ct, statement.getValue(), textFlags));
+        }
+        T template = sc.getCondition();
+        if (template == null) {
+            return new DelegatingEvaluator<T>(sc);
+        }
+        Object rValue;
+        try {
+            rValue = PrimitiveSearchCondition.getPrimitiveValue(property, statement.getValue());
+        } catch (RuntimeException ex) {
+            // let the condition report it the same way it does at the matching time
+            return new DelegatingEvaluator<T>(sc);
+        }
+        Comparison comparison = new Comparison(ct, rValue, textFlags);
+        int cost = comparison.getCost();
+        if (template instanceof SearchBean) {
+            return new SearchBeanEvaluator<T>(property, comparison);
+        }
+        Beanspector<T> beanspector = new Beanspector<T>(template);
+        int index = property.indexOf(".");
+        String firstPart = index == -1 ? property : property.substring(0, index);
+        Method getter = beanspector.getGetter(firstPart);
+        if (getter == null) {
+            return new ConstantEvaluator<T>(false);
+        }
+        String[] parts = property.split("\\.");
+        String[] getterNames = new String[parts.length - 1];
+        for (int i = 1; i < parts.length; i++) {
+            getterNames[i - 1] = "get" + getMethodNameSuffix(parts[i]);
+        }
+        cost += NESTED_PATH_COST * getterNames.length;
+        if (sc.getClass() == CollectionCheckCondition.class 
+            || Collection.class.isAssignableFrom(getter.getReturnType()) 
+            || getter.getReturnType().isArray()) {
+            cost += COLLECTION_COST;
+        }
+        return new PropertyEvaluator<T>(new GetterChain(getter, getterNames), comparison, cost);
+    }
+    
+    /**
+     * Sorts the evaluators by their keys, the evaluators of unknown cost stay in place 
+     * and the ones found between them are sorted separately. The sort is stable.
+     */
+    static <T> Evaluator<T>[] sort(Evaluator<T>[] evaluators, final double[] keys) {
+        Integer[] indexes = new Integer[evaluators.length];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = i;
+        }
+        Comparator<Integer> comparator = new Comparator<Integer>() {
+            public int compare(Integer i1, Integer i2) {
+                return Double.compare(keys[i1], keys[i2]);
+            }
+        };
+        int from = 0;
+        for (int i = 0; i <= evaluators.length; i++) {
+            if (i == evaluators.length || evaluators[i].getCost() == UNKNOWN_COST) {
+                Arrays.sort(indexes, from, i, comparator);
+                from = i + 1;
+            }
+        }
+        Evaluator<T>[] sorted = Arrays.copyOf(evaluators, evaluators.length);
+        for (int i = 0; i < indexes.length; i++) {
+            sorted[i] = evaluators[indexes[i]];
+        }
+        return sorted;
+    }
+    
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static <T> Evaluator<T>[] newEvaluators(int size) {
+        return new Evaluator[size];
+    }
+    
+    private static <T> int getTotalCost(Evaluator<T>[] evaluators) {
+        long cost = 0;
+        for (Evaluator<T> evaluator : evaluators) {
+            if (evaluator.getCost() == UNKNOWN_COST) {
+                return UNKNOWN_COST;
+            }
+            cost += evaluator.getCost();
+        }
+        return (int)Math.min(cost, UNKNOWN_COST - 1);
+    }
+    
+    private static String getMethodNameSuffix(String name) {
+        if (name.length() == 1) {
+            return name.toUpperCase();
+        } else {
+            return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        }
+    }
+    
+    interface Evaluator<T> {
+        boolean isMet(T pojo);
+        
+        /**
+         * @return estimated cost of isMet, {@link #UNKNOWN_COST} for the evaluators 
+         *         which must not be reordered
+         */
+        int getCost();
+    }
+    
+    private static class AndEvaluator<T> implements Evaluator<T> {
+        private final Evaluator<T>[] evaluators;
+        
+        AndEvaluator(Evaluator<T>[] evaluators) {
+            this.evaluators = evaluators;
+        }
+        
+        public boolean isMet(T pojo) {
+            for (int i = 0; i < evaluators.length; i++) {
+                if (!evaluators[i].isMet(pojo)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        public int getCost() {
+            return getTotalCost(evaluators);
+        }
+    }
+    
+    private static class OrEvaluator<T> implements Evaluator<T> {
+        private final Evaluator<T>[] evaluators;
+        
+        OrEvaluator(Evaluator<T>[] evaluators) {
+            this.evaluators = evaluators;
+        }
+        
+        public boolean isMet(T pojo) {
+            for (int i = 0; i < evaluators.length; i++) {
+                if (evaluators[i].isMet(pojo)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        public int getCost() {
+            return getTotalCost(evaluators);
+        }
+    }
+    
+    /**
+     * AND or OR evaluator reordering its children by the ratio of their cost to the observed 
+     * probability of short-circuiting the evaluation, every {@link #ADAPTIVE_SAMPLE_SIZE} evaluations.
+     * The statistics are updated without synchronization, the updates lost due to the concurrent
+     * evaluations only make them less precise.
+     */
+    private static class AdaptiveEvaluator<T> implements Evaluator<T> {
+        private final boolean shortCircuitResult;
+        private final int cost;
+        private volatile AdaptiveChild<T>[] children;
+        private int evaluations;
+        
+        AdaptiveEvaluator(Evaluator<T>[] evaluators, boolean or) {
+            this.shortCircuitResult = or;
+            this.cost = getTotalCost(evaluators);
+            this.children = newChildren(evaluators.length);
+            for (int i = 0; i < evaluators.length; i++) {
+                children[i] = new AdaptiveChild<T>(evaluators[i]);
+            }
+        }
+        
+        public boolean isMet(T pojo) {
+            if (++evaluations >= ADAPTIVE_SAMPLE_SIZE) {
+                evaluations = 0;
+                reorder();
+            }
+            AdaptiveChild<T>[] current = children;
+            for (int i = 0; i < current.length; i++) {
+                AdaptiveChild<T> child = current[i];
+                child.evaluations++;
+                if (child.evaluator.isMet(pojo) == shortCircuitResult) {
+                    child.shortCircuits++;
+                    return shortCircuitResult;
+                }
+            }
+            return !shortCircuitResult;
+        }
+        
+        public int getCost() {
+            return cost;
+        }
+        
+        private void reorder() {
+            AdaptiveChild<T>[] current = children;
+            Evaluator<T>[] evaluators = newEvaluators(current.length);
+            double[] keys = new double[current.length];
+            for (int i = 0; i < current.length; i++) {
+                AdaptiveChild<T> child = current[i];
+                evaluators[i] = child;
+                double selectivity = (child.shortCircuits + 1.0) / (child.evaluations + 2.0);
+                keys[i] = (child.getCost() + 1.0) / selectivity;
+                // older statistics weigh less
+                child.evaluations /= 2;
+                child.shortCircuits /= 2;
+            }
+            evaluators = sort(evaluators, keys);
+            AdaptiveChild<T>[] reordered = newChildren(current.length);
+            for (int i = 0; i < evaluators.length; i++) {
+                reordered[i] = (AdaptiveChild<T>)evaluators[i];
+            }
+            children = reordered;
+        }
+        
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        private static <T> AdaptiveChild<T>[] newChildren(int size) {
+            return new AdaptiveChild[size];
+        }
+    }
+    
+    private static class AdaptiveChild<T> implements Evaluator<T> {
+        private final Evaluator<T> evaluator;
+        private long evaluations;
+        private long shortCircuits;
+        
+        AdaptiveChild(Evaluator<T> evaluator) {
+            this.evaluator = evaluator;
+        }
+        
+        public boolean isMet(T pojo) {
+            return evaluator.isMet(pojo);
+        }
+        
+        public int getCost() {
+            return evaluator.getCost();
+        }
+    }
+    
+    private static class DelegatingEvaluator<T> implements Evaluator<T> {
+        private final SearchCondition<T> sc;
+        
+        DelegatingEvaluator(SearchCondition<T> sc) {
+            this.sc = sc;
+        }
+        
+        public boolean isMet(T pojo) {
+            return sc.isMet(pojo);
+        }
+        
+        public int getCost() {
+            return UNKNOWN_COST;
+        }
+    }
+    
+    private static class ConstantEvaluator<T> implements Evaluator<T> {
+        private final boolean value;
+        
+        ConstantEvaluator(boolean value) {
+            this.value = value;
+        }
+        
+        public boolean isMet(T pojo) {
+            return value;
+        }
+        
+        public int getCost() {
+            return 0;
+        }
+    }
+    
+    /**
+     * Comparison with the precomputed right-hand value
+     */
+    private static class Comparison {
+        private final ConditionType ct;
+        private final Object rValue;
+        private final TextMatcher textMatcher;
+        
+        Comparison(ConditionType ct, Object rValue, int textFlags) {
+            this.ct = ct;
+            this.rValue = rValue;
+            this.textMatcher = rValue instanceof String ? TextMatcher.compile((String)rValue, textFlags) : null;
+        }
+        
+        boolean compare(Object lValue) {
+            return PrimitiveSearchCondition.compare(lValue, ct, rValue, textMatcher);
+        }
+        
+        int getCost() {
+            if (textMatcher == null) {
+                return PRIMITIVE_COST;
+            }
+            if ((ct != ConditionType.EQUALS && ct != ConditionType.NOT_EQUALS) || textMatcher.isExact()) {
+                return STRING_COST;
+            }
+            return textMatcher.isPrefixOrSuffix() ? PREFIX_COST : CONTAINS_COST;
+        }
+    }
+    
+    // matches built-in types such as Integer or String  
+    private static class ValueEvaluator<T> implements Evaluator<T> {
+        private final Comparison comparison;
+        
+        ValueEvaluator(Comparison comparison) {
+            this.comparison = comparison;
+        }
+        
+        public boolean isMet(T pojo) {
+            return comparison.compare(pojo);
+        }
+        
+        public int getCost() {
+            return comparison.getCost();
+        }
+    }
+    
+    private static class SearchBeanEvaluator<T> implements Evaluator<T> {
+        private final String property;
+        private final Comparison comparison;
+        
+        SearchBeanEvaluator(String property, Comparison comparison) {
+            this.property = property;
+            this.comparison = comparison;
+        }
+        
+        public boolean isMet(T pojo) {
+            Object lValue = ((SearchBean)pojo).get(property);
+            return lValue == null ? false : comparison.compare(lValue);
+        }
+        
+        public int getCost() {
+            return comparison.getCost();
+        }
+    }
+    
+    private static class PropertyEvaluator<T> implements Evaluator<T> {
+        private final GetterChain getters;
+        private final Comparison comparison;
+        private final int cost;
+        
+        PropertyEvaluator(GetterChain getters, Comparison comparison, int cost) {
+            this.getters = getters;
+            this.comparison = comparison;
+            this.cost = cost;
+        }
+        
+        public boolean isMet(T pojo) {
+            Object lValue = getters.getValue(pojo);
+            return lValue == null ? false : comparison.compare(lValue);
+        }
+        
+        public int getCost() {
+            return cost;
+        }
+    }
+    
+    /**
+     * Getters for the property path such as "address.street". The first getter is 
+     * resolved on the template class, the nested ones - on the actual class of 
+     * the intermediate values, the way PrimitiveSearchCondition does it, 
+     * and are cached per class.
+     */
+    static class GetterChain {
+        private final Method firstGetter;
+        private final String[] getterNames;
+        // Plain array: ResolvedGetter is immutable, a racy read at most causes one more lookup 
+        private final ResolvedGetter[] resolved;
+        
+        GetterChain(Method firstGetter, String[] getterNames) {
+            this.firstGetter = firstGetter;
+            this.getterNames = getterNames;
+            this.resolved = new ResolvedGetter[getterNames.length];
+        }
+        
+        Object getValue(Object pojo) {
+            try {
+                Object value = firstGetter.invoke(pojo);
+                for (int i = 0; i < getterNames.length; i++) {
+                    if (value == null || InjectionUtils.isPrimitive(value.getClass())) {
+                        break;
+                    }
+                    value = getGetter(i, value.getClass()).invoke(value);
+                }
+                return value;
+            } catch (Throwable ex) {
+                return null;
+            }
+        }
+        
+        private Method getGetter(int index, Class<?> cls) throws NoSuchMethodException {
+            ResolvedGetter getter = resolved[index];
+            if (getter == null || getter.cls != cls) {
+                getter = new ResolvedGetter(cls, cls.getMethod(getterNames[index], new Class<?>[]{}));
+                resolved[index] = getter;
+            }
+            return getter.method;
+        }
+    }
+    
+    private static class ResolvedGetter {
+        private final Class<?> cls;
+        private final Method method;
+        
+        ResolvedGetter(Class<?> cls, Method method) {
+            this.cls = cls;
+            this.method = method;
+        }
+    }
+}
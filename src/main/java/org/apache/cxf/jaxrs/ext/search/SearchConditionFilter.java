@@ -0,0 +1,215 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.ext.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Filters large collections with a SearchCondition without necessarily materializing
+ * the complete result list: the matches can be iterated lazily, limited to the first N ones or 
+ * found in parallel.
+ * <pre>
+ * SearchCondition&lt;Book&gt; sc = SearchConditionCompiler.compile(parser.parse("name==CXF*"));
+ * 
+ * // lazy iteration, stops reading the books once the caller stops iterating
+ * for (Book book : SearchConditionFilter.filter(sc, books)) {
+ * }
+ * // first 10 matches only
+ * List&lt;Book&gt; page = SearchConditionFilter.findFirst(sc, books, 10);
+ * // chunks of 10000 books are matched in parallel
+ * List&lt;Book&gt; all = SearchConditionFilter.findAll(sc, books, executor, 10000);
+ * </pre>
+ * Parallel matching requires {@link SearchCondition#isMet(Object)} to be thread-safe, 
+ * which is the case for the conditions created by the parsers and by SearchConditionCompiler.
+ */
+public final class SearchConditionFilter {
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 10000;
+    
+    private SearchConditionFilter() {
+        
+    }
+    
+    /**
+     * Returns the lazy view of the matching beans
+     * @param sc the condition
+     * @param pojos the beans
+     * @return the view of the matching beans, each iteration over it re-checks the beans 
+     */
+    public static <T> Iterable<T> filter(final SearchCondition<T> sc, final Iterable<T> pojos) {
+        return new Iterable<T>() {
+            public Iterator<T> iterator() {
+                return filter(sc, pojos.iterator());
+            }
+        };
+    }
+    
+    /**
+     * Returns the lazy iterator over the matching beans
+     * @param sc the condition
+     * @param pojos the beans
+     * @return the iterator checking the beans one by one as it is advanced 
+     */
+    public static <T> Iterator<T> filter(SearchCondition<T> sc, Iterator<T> pojos) {
+        return new MatchingIterator<T>(sc, pojos);
+    }
+    
+    /**
+     * Finds the first matching beans
+     * @param sc the condition
+     * @param pojos the beans
+     * @param max maximum number of the beans to find
+     * @return the first max matching beans
+     */
+    public static <T> List<T> findFirst(SearchCondition<T> sc, Iterable<T> pojos, int max) {
+        List<T> result = new ArrayList<T>();
+        for (Iterator<T> it = pojos.iterator(); result.size() < max && it.hasNext();) {
+            T pojo = it.next();
+            if (sc.isMet(pojo)) {
+                result.add(pojo);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Finds all the matching beans in parallel, with the chunks of 
+     * {@link #DEFAULT_PARALLEL_THRESHOLD} beans being matched by the individual tasks
+     * @param sc the condition
+     * @param pojos the beans
+     * @param executor the executor running the tasks
+     * @return the matching beans, in the iteration order of the collection
+     */
+    public static <T> List<T> findAll(SearchCondition<T> sc, Collection<T> pojos, ExecutorService executor) {
+        return findAll(sc, pojos, executor, DEFAULT_PARALLEL_THRESHOLD);
+    }
+    
+    /**
+     * Finds all the matching beans in parallel
+     * @param sc the condition
+     * @param pojos the beans
+     * @param executor the executor running the tasks
+     * @param threshold the number of beans matched by a single task, the collections
+     *        not bigger than it are matched by the calling thread only 
+     * @return the matching beans, in the iteration order of the collection
+     */
+    public static <T> List<T> findAll(SearchCondition<T> sc, Collection<T> pojos, 
+                                      ExecutorService executor, int threshold) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("threshold must be positive");
+        }
+        int size = pojos.size();
+        if (size <= threshold) {
+            return sc.findAll(pojos);
+        }
+        List<T> list = pojos instanceof List && pojos instanceof RandomAccess 
+            ? (List<T>)pojos : new ArrayList<T>(pojos);
+        
+        List<Future<List<T>>> futures = new ArrayList<Future<List<T>>>();
+        int from = 0;
+        try {
+            for (; from + threshold < size; from += threshold) {
+                futures.add(executor.submit(new MatchingTask<T>(sc, list.subList(from, from + threshold))));
+            }
+            // the last chunk is matched by the calling thread
+            List<T> last = sc.findAll(list.subList(from, size));
+            
+            List<T> result = new ArrayList<T>();
+            for (Future<List<T>> future : futures) {
+                result.addAll(future.get());
+            }
+            result.addAll(last);
+            return result;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while matching the beans", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            for (Future<List<T>> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+    
+    private static class MatchingTask<T> implements Callable<List<T>> {
+        private final SearchCondition<T> sc;
+        private final List<T> pojos;
+        
+        MatchingTask(SearchCondition<T> sc, List<T> pojos) {
+            this.sc = sc;
+            this.pojos = pojos;
+        }
+        
+        public List<T> call() {
+            return sc.findAll(pojos);
+        }
+    }
+    
+    private static class MatchingIterator<T> implements Iterator<T> {
+        private final SearchCondition<T> sc;
+        private final Iterator<T> pojos;
+        private T next;
+        private boolean nextFound;
+        
+        MatchingIterator(SearchCondition<T> sc, Iterator<T> pojos) {
+            this.sc = sc;
+            this.pojos = pojos;
+        }
+        
+        public boolean hasNext() {
+            while (!nextFound && pojos.hasNext()) {
+                T pojo = pojos.next();
+                if (sc.isMet(pojo)) {
+                    next = pojo;
+                    nextFound = true;
+                }
+            }
+            return nextFound;
+        }
+        
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T pojo = next;
+            next = null;
+            nextFound = false;
+            return pojo;
+        }
+        
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,450 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.ext.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.cxf.jaxrs.ext.search.collections.CollectionCheckCondition;
+import org.apache.cxf.jaxrs.ext.search.collections.CollectionCheckInfo;
+import org.apache.cxf.jaxrs.ext.search.collections.CollectionCheckStatement;
+
+/**
+ * Rewrites a parsed SearchCondition tree into a smaller equivalent one before it is
+ * matched in memory or translated by one of the visitors:
+ * <ul>
+ * <li>nested AND conditions are merged into their AND parent, nested OR conditions - into their OR parent</li>
+ * <li>duplicate statements and sub-trees are removed</li>
+ * <li>the bounds on the same property are merged: the AND condition keeps the tightest lower and upper
+ * bounds, for example, "a=gt=1;a=gt=5;a=lt=10" becomes "a=gt=5;a=lt=10", the OR condition keeps 
+ * the loosest ones</li>
+ * <li>the statements implied by an equality check on the same property are removed, for example, 
+ * "a==5;a=gt=1;a!=7" becomes "a==5"</li>
+ * <li>contradictions such as "a==1;a==2" or "a=gt=10;a=lt=5" make the condition empty</li>
+ * </ul>
+ * <p>
+ * Only the statements of the conditions created by the parsers are reasoned about, custom 
+ * SearchCondition implementations are kept as is. The value-based rules are applied to the
+ * numeric and date values of the same type only: the string values are only deduplicated
+ * because the collation and the wildcard semantics of the string checks depend on the backend.
+ * </p>
+ * <p>
+ * The condition which can never be met is reported with the dedicated condition checked with 
+ * {@link #isEmpty(SearchCondition)}: it matches no beans in memory but can not be visited,
+ * the query should be skipped instead. 
+ * </p>
+ * <pre>
+ * SearchCondition&lt;Book&gt; sc = SearchConditionNormalizer.normalize(parser.parse(expression));
+ * if (SearchConditionNormalizer.isEmpty(sc)) {
+ *     return Collections.emptyList();
+ * }
+ * sc.accept(visitor);
+ * </pre>
+ */
+public final class SearchConditionNormalizer {
+    
+    private SearchConditionNormalizer() {
+        
+    }
+    
+    /**
+     * Normalizes the condition
+     * @param sc the condition
+     * @return the equivalent normalized condition, the original one if it can not be simplified
+     *         or the empty condition if it can never be met
+     */
+    public static <T> SearchCondition<T> normalize(SearchCondition<T> sc) {
+        return isComposite(sc) ? normalizeComposite(sc) : sc;
+    }
+    
+    /**
+     * Checks if the condition is the normalized condition which can never be met 
+     * @param sc the condition
+     * @return true if the condition is empty
+     */
+    public static boolean isEmpty(SearchCondition<?> sc) {
+        return sc instanceof EmptySearchCondition;
+    }
+    
+    private static <T> SearchCondition<T> normalizeComposite(SearchCondition<T> sc) {
+        ConditionType ct = sc.getConditionType();
+        boolean and = ct == ConditionType.AND;
+        
+        List<SearchCondition<T>> original = sc.getSearchConditions();
+        List<SearchCondition<T>> children = new ArrayList<SearchCondition<T>>(original.size());
+        for (SearchCondition<T> child : original) {
+            SearchCondition<T> normalized = normalize(child);
+            if (isEmpty(normalized)) {
+                if (and) {
+                    return normalized;
+                }
+            } else if (isComposite(normalized) && normalized.getConditionType() == ct) {
+                children.addAll(normalized.getSearchConditions());
+            } else {
+                children.add(normalized);
+            }
+        }
+        if (children.isEmpty()) {
+            return new EmptySearchCondition<T>(sc.getCondition());
+        }
+        removeDuplicates(children);
+        if (!mergeBounds(children, and)) {
+            return new EmptySearchCondition<T>(sc.getCondition());
+        }
+        
+        if (children.size() == 1) {
+            return children.get(0);
+        } else if (children.equals(original)) {
+            return sc;
+        } else {
+            return and ? new AndSearchCondition<T>(children) : new OrSearchCondition<T>(children);
+        }
+    }
+    
+    private static boolean isComposite(SearchCondition<?> sc) {
+        Class<?> cls = sc.getClass();
+        if (cls != AndSearchCondition.class && cls != OrSearchCondition.class 
+            && cls != SimpleSearchCondition.class) {
+            return false;
+        }
+        ConditionType ct = sc.getConditionType();
+        return (ct == ConditionType.AND || ct == ConditionType.OR) 
+            && sc.getStatement() == null && sc.getSearchConditions() != null;
+    }
+    
+    private static PrimitiveStatement getStatement(SearchCondition<?> sc) {
+        Class<?> cls = sc.getClass();
+        if (cls != PrimitiveSearchCondition.class && cls != SimpleSearchCondition.class 
+            && cls != CollectionCheckCondition.class) {
+            return null;
+        }
+        return sc.getStatement();
+    }
+    
+    private static <T> void removeDuplicates(List<SearchCondition<T>> children) {
+        Set<Object> keys = new HashSet<Object>();
+        for (int i = 0; i < children.size(); i++) {
+            Object key = getKey(children.get(i));
+            if (key != null && !keys.add(key)) {
+                children.remove(i--);
+            }
+        }
+    }
+    
+    /**
+     * Returns the key identifying the equivalent conditions or null if the condition 
+     * can only be equal to itself
+     */
+    private static Object getKey(SearchCondition<?> sc) {
+        if (isComposite(sc)) {
+            List<Object> keys = new ArrayList<Object>();
+            keys.add(sc.getConditionType());
+            for (SearchCondition<?> child : sc.getSearchConditions()) {
+                Object key = getKey(child);
+                if (key == null) {
+                    return null;
+                }
+                keys.add(key);
+            }
+            return keys;
+        }
+        PrimitiveStatement st = getStatement(sc);
+        if (st == null) {
+            return null;
+        }
+        if (st instanceof CollectionCheckStatement) {
+            CollectionCheckInfo info = ((CollectionCheckStatement)st).getCollectionCheckInfo();
+            return Arrays.asList(sc.getClass(), st.getProperty(), st.getCondition(), st.getValue(),
+                                 info.getCollectionCheckType(), info.getCollectionCheckValue());
+        }
+        return Arrays.asList(sc.getClass(), st.getProperty(), st.getCondition(), st.getValue());
+    }
+    
+    /**
+     * Removes the redundant statements 
+     * @return false if the AND condition can never be met 
+     */
+    private static <T> boolean mergeBounds(List<SearchCondition<T>> children, boolean and) {
+        Map<String, Bounds> properties = new LinkedHashMap<String, Bounds>();
+        for (SearchCondition<T> child : children) {
+            PrimitiveStatement st = getStatement(child);
+            if (st == null || st instanceof CollectionCheckStatement || !isComparable(st.getValue())) {
+                continue;
+            }
+            Bounds bounds = properties.get(st.getProperty());
+            if (bounds == null) {
+                bounds = new Bounds(st.getValue().getClass());
+                properties.put(st.getProperty(), bounds);
+            } else if (bounds.valueClass != st.getValue().getClass()) {
+                continue;
+            }
+            if (!bounds.add(child, st, and)) {
+                return false;
+            }
+        }
+        Map<SearchCondition<?>, Boolean> redundant = new IdentityHashMap<SearchCondition<?>, Boolean>();
+        for (Bounds bounds : properties.values()) {
+            if (!bounds.collectRedundant(redundant, and)) {
+                return false;
+            }
+        }
+        if (!redundant.isEmpty()) {
+            for (int i = 0; i < children.size(); i++) {
+                if (redundant.containsKey(children.get(i))) {
+                    children.remove(i--);
+                }
+            }
+        }
+        return true;
+    }
+    
+    private static boolean isComparable(Object value) {
+        return value instanceof Number && value instanceof Comparable || value instanceof Date;
+    }
+    
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static int compare(Object value1, Object value2) {
+        return ((Comparable)value1).compareTo(value2);
+    }
+    
+    /**
+     * Checks that the values compare as equal and the equality check on one of them
+     * implies the same check on the other one
+     */
+    private static boolean isSame(Object value1, Object value2) {
+        return compare(value1, value2) == 0 && value1.equals(value2);
+    }
+    
+    /**
+     * Checks if all the values passing the bound check also pass the other bound check 
+     */
+    private static boolean isWithin(PrimitiveStatement bound, PrimitiveStatement other) {
+        int result = compare(bound.getValue(), other.getValue());
+        if (result == 0) {
+            return isInclusive(other) || !isInclusive(bound);
+        }
+        return isLower(bound) ? result > 0 : result < 0;
+    }
+    
+    /**
+     * Checks if the value passes the bound check
+     */
+    private static boolean accepts(PrimitiveStatement bound, Object value) {
+        int result = compare(value, bound.getValue());
+        if (result == 0) {
+            return isInclusive(bound);
+        }
+        return isLower(bound) ? result > 0 : result < 0;
+    }
+    
+    private static boolean isLower(PrimitiveStatement st) {
+        return st.getCondition() == ConditionType.GREATER_THAN 
+            || st.getCondition() == ConditionType.GREATER_OR_EQUALS;
+    }
+    
+    private static boolean isInclusive(PrimitiveStatement st) {
+        return st.getCondition() == ConditionType.GREATER_OR_EQUALS 
+            || st.getCondition() == ConditionType.LESS_OR_EQUALS;
+    }
+    
+    /**
+     * The statements on the same property and with the values of the same type 
+     */
+    private static class Bounds {
+        private Class<?> valueClass;
+        private SearchCondition<?> lower;
+        private PrimitiveStatement lowerStatement;
+        private SearchCondition<?> upper;
+        private PrimitiveStatement upperStatement;
+        private SearchCondition<?> equal;
+        private PrimitiveStatement equalStatement;
+        private List<SearchCondition<?>> others = new ArrayList<SearchCondition<?>>();
+        private List<PrimitiveStatement> otherStatements = new ArrayList<PrimitiveStatement>();
+        private List<SearchCondition<?>> redundant = new ArrayList<SearchCondition<?>>();
+        
+        Bounds(Class<?> valueClass) {
+            this.valueClass = valueClass;
+        }
+        
+        boolean add(SearchCondition<?> sc, PrimitiveStatement st, boolean and) {
+            switch (st.getCondition()) {
+            case GREATER_THAN:
+            case GREATER_OR_EQUALS:
+                if (lower == null || replaces(st, lowerStatement, and)) {
+                    addRedundant(lower);
+                    lower = sc;
+                    lowerStatement = st;
+                } else {
+                    redundant.add(sc);
+                }
+                break;
+            case LESS_THAN:
+            case LESS_OR_EQUALS:
+                if (upper == null || replaces(st, upperStatement, and)) {
+                    addRedundant(upper);
+                    upper = sc;
+                    upperStatement = st;
+                } else {
+                    redundant.add(sc);
+                }
+                break;
+            case EQUALS:
+                if (and && equal != null) {
+                    if (compare(st.getValue(), equalStatement.getValue()) != 0) {
+                        return false;
+                    }
+                    if (isSame(st.getValue(), equalStatement.getValue())) {
+                        redundant.add(sc);
+                        break;
+                    }
+                } else if (and) {
+                    equal = sc;
+                    equalStatement = st;
+                    break;
+                }
+                others.add(sc);
+                otherStatements.add(st);
+                break;
+            default:
+                others.add(sc);
+                otherStatements.add(st);
+            }
+            return true;
+        }
+        
+        private boolean replaces(PrimitiveStatement st, PrimitiveStatement current, boolean and) {
+            // the tighter bound replaces the current one in AND, the looser one - in OR
+            return and ? isWithin(st, current) && !isWithin(current, st) 
+                : isWithin(current, st) && !isWithin(st, current);
+        }
+        
+        private void addRedundant(SearchCondition<?> sc) {
+            if (sc != null) {
+                redundant.add(sc);
+            }
+        }
+        
+        boolean collectRedundant(Map<SearchCondition<?>, Boolean> all, boolean and) {
+            if (and) {
+                if (lower != null && upper != null) {
+                    int result = compare(lowerStatement.getValue(), upperStatement.getValue());
+                    if (result > 0 
+                        || result == 0 && !(isInclusive(lowerStatement) && isInclusive(upperStatement))) {
+                        return false;
+                    }
+                }
+                if (equal != null) {
+                    Object value = equalStatement.getValue();
+                    if (lower != null) {
+                        if (!accepts(lowerStatement, value)) {
+                            return false;
+                        }
+                        redundant.add(lower);
+                    }
+                    if (upper != null) {
+                        if (!accepts(upperStatement, value)) {
+                            return false;
+                        }
+                        redundant.add(upper);
+                    }
+                }
+                for (int i = 0; i < others.size(); i++) {
+                    PrimitiveStatement st = otherStatements.get(i);
+                    if (st.getCondition() != ConditionType.NOT_EQUALS) {
+                        continue;
+                    }
+                    if (equal != null) {
+                        if (isSame(st.getValue(), equalStatement.getValue())) {
+                            return false;
+                        } else if (compare(st.getValue(), equalStatement.getValue()) != 0) {
+                            redundant.add(others.get(i));
+                        }
+                    } else if (lower != null && !accepts(lowerStatement, st.getValue())
+                        || upper != null && !accepts(upperStatement, st.getValue())) {
+                        redundant.add(others.get(i));
+                    }
+                }
+            } else {
+                for (int i = 0; i < others.size(); i++) {
+                    PrimitiveStatement st = otherStatements.get(i);
+                    if (st.getCondition() == ConditionType.EQUALS
+                        && (lower != null && accepts(lowerStatement, st.getValue())
+                            || upper != null && accepts(upperStatement, st.getValue()))) {
+                        redundant.add(others.get(i));
+                    }
+                }
+            }
+            for (SearchCondition<?> sc : redundant) {
+                all.put(sc, Boolean.TRUE);
+            }
+            return true;
+        }
+    }
+    
+    /**
+     * The condition which can never be met
+     */
+    private static class EmptySearchCondition<T> implements SearchCondition<T> {
+        private T condition;
+        
+        EmptySearchCondition(T condition) {
+            this.condition = condition;
+        }
+        
+        public boolean isMet(T pojo) {
+            return false;
+        }
+
+        public List<T> findAll(Collection<T> pojos) {
+            return new ArrayList<T>();
+        }
+
+        public T getCondition() {
+            return condition;
+        }
+
+        public ConditionType getConditionType() {
+            return ConditionType.CUSTOM;
+        }
+
+        public List<SearchCondition<T>> getSearchConditions() {
+            return null;
+        }
+
+        public PrimitiveStatement getStatement() {
+            return null;
+        }
+
+        public String toSQL(String table, String... columns) {
+            throw new IllegalStateException("The condition can never be met, the query should be skipped");
+        }
+
+        public void accept(SearchConditionVisitor<T, ?> visitor) {
+            throw new IllegalStateException("The condition can never be met, the query should be skipped");
+        }
+    }
+}
@@ -20,6 +20,8 @@
 package org.apache.cxf.jaxrs.ext.search;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -29,6 +31,7 @@ import javax.ws.rs.core.MultivaluedMap;
 
 import org.apache.cxf.common.logging.LogUtils;
 import org.apache.cxf.common.util.PropertyUtils;
+import org.apache.cxf.endpoint.Endpoint;
 import org.apache.cxf.helpers.CastUtils;
 import org.apache.cxf.jaxrs.ext.search.client.CompleteCondition;
 import org.apache.cxf.jaxrs.ext.search.client.SearchConditionBuilder;
@@ -88,13 +91,30 @@ public class SearchContextImpl implements SearchContext {
             throw new IllegalArgumentException(errorMessage);
         }
         
-        SearchConditionParser<T> parser = getParser(cls, beanProperties, parserProperties);
-        
         String theExpression = expression == null 
             ? getSearchExpression() : expression;
         if (theExpression != null) {
+            Object parserProp = message.getContextualProperty(CUSTOM_SEARCH_PARSER_PROPERTY);
+            Map<String, String> props = getParserProperties(parserProperties);
+            Map<String, String> beanProps = getBeanProperties(beanProperties);
+            
+            SearchConditionCache cache = getConditionCache();
+            ConditionKey key = null;
+            if (cache != null) {
+                key = new ConditionKey(theExpression, cls, parserProp, props, beanProps);
+                SearchCondition<T> cached = castCondition(cache.get(key));
+                if (cached != null) {
+                    return cached;
+                }
+            }
+            
+            SearchConditionParser<T> parser = getParser(cls, parserProp, props, beanProps);
             try {
-                return parser.parse(theExpression);
+                SearchCondition<T> sc = parser.parse(theExpression);
+                if (cache != null && sc != null) {
+                    cache.put(key.copy(), sc);
+                }
+                return sc;
             } catch (SearchParseException ex) {
                 if (PropertyUtils.isTrue(message.getContextualProperty(BLOCK_SEARCH_EXCEPTION))) {
                     return null;
@@ -168,44 +188,145 @@ public class SearchContextImpl implements SearchContext {
     
     
     
-    private <T> SearchConditionParser<T> getParser(Class<T> cls, 
-                                                   Map<String, String> beanProperties,
-                                                   Map<String, String> parserProperties) {
-        
-        Object parserProp = message.getContextualProperty(CUSTOM_SEARCH_PARSER_PROPERTY);
+    private <T> SearchConditionParser<T> getParser(Class<T> cls,
+                                                   Object parserProp,
+                                                   Map<String, String> props,
+                                                   Map<String, String> beanProps) {
         if (parserProp != null) {
             return getCustomParser(parserProp);
         }
-        
-        Map<String, String> props = null;
-        if (parserProperties == null) {
-            props = new LinkedHashMap<String, String>(4);
-            props.put(SearchUtils.DATE_FORMAT_PROPERTY, 
-                      (String)message.getContextualProperty(SearchUtils.DATE_FORMAT_PROPERTY));
-            props.put(SearchUtils.TIMEZONE_SUPPORT_PROPERTY, 
-                      (String)message.getContextualProperty(SearchUtils.TIMEZONE_SUPPORT_PROPERTY));
-            props.put(SearchUtils.LAX_PROPERTY_MATCH, 
-                      (String)message.getContextualProperty(SearchUtils.LAX_PROPERTY_MATCH));
-            // FIQL specific
-            props.put(FiqlParser.SUPPORT_SINGLE_EQUALS, 
-                      (String)message.getContextualProperty(FiqlParser.SUPPORT_SINGLE_EQUALS)); 
-        } else {
-            props = parserProperties;
+        return new FiqlParser<T>(cls, props, beanProps); 
+    }
+    
+    private Map<String, String> getParserProperties(Map<String, String> parserProperties) {
+        if (parserProperties != null) {
+            return parserProperties;
         }
-        
-        Map<String, String> beanProps = null;
-            
-        if (beanProperties == null) {    
-            beanProps = CastUtils.cast((Map<?, ?>)message.getContextualProperty(SearchUtils.BEAN_PROPERTY_MAP));
-        } else {
-            beanProps = beanProperties;
+        Map<String, String> props = new LinkedHashMap<String, String>(4);
+        props.put(SearchUtils.DATE_FORMAT_PROPERTY, 
+                  (String)message.getContextualProperty(SearchUtils.DATE_FORMAT_PROPERTY));
+        props.put(SearchUtils.TIMEZONE_SUPPORT_PROPERTY, 
+                  (String)message.getContextualProperty(SearchUtils.TIMEZONE_SUPPORT_PROPERTY));
+        props.put(SearchUtils.LAX_PROPERTY_MATCH, 
+                  (String)message.getContextualProperty(SearchUtils.LAX_PROPERTY_MATCH));
+        // FIQL specific
+        props.put(FiqlParser.SUPPORT_SINGLE_EQUALS, 
+                  (String)message.getContextualProperty(FiqlParser.SUPPORT_SINGLE_EQUALS)); 
+        return props;
+    }
+    
+    private Map<String, String> getBeanProperties(Map<String, String> beanProperties) {
+        if (beanProperties != null) {
+            return beanProperties;
         }
-        
-        return new FiqlParser<T>(cls, props, beanProps); 
+        return CastUtils.cast((Map<?, ?>)message.getContextualProperty(SearchUtils.BEAN_PROPERTY_MAP));
+    }
+    
+    private SearchConditionCache getConditionCache() {
+        Object cacheProp = message.getContextualProperty(SearchUtils.CONDITION_CACHE_PROPERTY);
+        if (cacheProp instanceof SearchConditionCache) {
+            return (SearchConditionCache)cacheProp;
+        }
+        if (!PropertyUtils.isTrue(cacheProp)) {
+            return null;
+        }
+        // the default cache is shared by all the requests to the current endpoint
+        Endpoint endpoint = message.getExchange() != null ? message.getExchange().getEndpoint() : null;
+        if (endpoint == null) {
+            return null;
+        }
+        String cacheKey = SearchConditionCache.class.getName();
+        SearchConditionCache cache = (SearchConditionCache)endpoint.get(cacheKey);
+        if (cache != null) {
+            return cache;
+        }
+        // the endpoint is only locked until the cache is created
+        synchronized (endpoint) {
+            cache = (SearchConditionCache)endpoint.get(cacheKey);
+            if (cache == null) {
+                cache = new SearchConditionCache(
+                    getIntProperty(SearchUtils.CONDITION_CACHE_SIZE_PROPERTY, 
+                                   SearchConditionCache.DEFAULT_MAX_SIZE),
+                    getIntProperty(SearchUtils.CONDITION_CACHE_TTL_PROPERTY, 0));
+                endpoint.put(cacheKey, cache);
+            }
+            return cache;
+        }
+    }
+    
+    private int getIntProperty(String name, int defaultValue) {
+        Object value = message.getContextualProperty(name);
+        return value == null ? defaultValue : Integer.parseInt(value.toString());
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static <T> SearchCondition<T> castCondition(SearchCondition<?> sc) {
+        return (SearchCondition<T>)sc;
     }
     
     @SuppressWarnings("unchecked")
     private <T> SearchConditionParser<T> getCustomParser(Object parserProp) {
         return (SearchConditionParser<T>)parserProp;
     }
+    
+    private static class ConditionKey {
+        private final String expression;
+        private final Class<?> cls;
+        private final Object parser;
+        private final Map<String, String> parserProperties;
+        private final Map<String, String> beanProperties;
+        private final int hashCode;
+        
+        ConditionKey(String expression, 
+                     Class<?> cls, 
+                     Object parser,
+                     Map<String, String> parserProperties,
+                     Map<String, String> beanProperties) {
+            this.expression = expression;
+            this.cls = cls;
+            this.parser = parser;
+            this.parserProperties = parserProperties;
+            this.beanProperties = beanProperties;
+            int h = expression.hashCode();
+            h = 31 * h + cls.hashCode();
+            h = 31 * h + (parser == null ? 0 : parser.hashCode());
+            h = 31 * h + (parserProperties == null ? 0 : parserProperties.hashCode());
+            h = 31 * h + (beanProperties == null ? 0 : beanProperties.hashCode());
+            this.hashCode = h;
+        }
+        
+        /**
+         * Returns the key which can be cached, the looked up keys refer to the property maps 
+         * of the caller which may still change
+         */
+        ConditionKey copy() {
+            return new ConditionKey(expression, cls, parser, 
+                                    copyOf(parserProperties), copyOf(beanProperties));
+        }
+        
+        private static Map<String, String> copyOf(Map<String, String> map) {
+            return map == null ? null : Collections.unmodifiableMap(new HashMap<String, String>(map));
+        }
+        
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof ConditionKey)) {
+                return false;
+            }
+            ConditionKey other = (ConditionKey)o;
+            return hashCode == other.hashCode
+                && expression.equals(other.expression)
+                && cls == other.cls
+                && (parser == null ? other.parser == null : parser.equals(other.parser))
+                && (parserProperties == null ? other.parserProperties == null 
+                    : parserProperties.equals(other.parserProperties))
+                && (beanProperties == null ? other.beanProperties == null 
+                    : beanProperties.equals(other.beanProperties));
+        }
+    }
 }
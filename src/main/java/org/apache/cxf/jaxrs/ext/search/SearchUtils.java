@@ -18,10 +18,14 @@
  */
 package org.apache.cxf.jaxrs.ext.search;
 
+import java.lang.reflect.Method;
 import java.text.SimpleDateFormat;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.cxf.jaxrs.ext.search.collections.CollectionCheckInfo;
+import org.apache.cxf.jaxrs.ext.search.collections.CollectionCheckStatement;
 import org.apache.cxf.jaxrs.ext.search.sql.SQLPrinterVisitor;
 
 public final class SearchUtils {
@@ -31,6 +35,9 @@ public final class SearchUtils {
     public static final String LAX_PROPERTY_MATCH = "search.lax.property.match";
     public static final String BEAN_PROPERTY_MAP = "search.bean.property.map";
     public static final String SEARCH_VISITOR_PROPERTY = "search.visitor";
+    public static final String CONDITION_CACHE_PROPERTY = "search.condition.cache";
+    public static final String CONDITION_CACHE_SIZE_PROPERTY = "search.condition.cache.size";
+    public static final String CONDITION_CACHE_TTL_PROPERTY = "search.condition.cache.ttl";
     
     private SearchUtils() {
         
@@ -52,6 +59,115 @@ public final class SearchUtils {
         return visitor.getQuery();
     }
     
+    /**
+     * Returns the shape of the condition: the canonical description of its structure,
+     * properties, condition types and value types which does not depend on the actual values.
+     * The conditions differing only in their values, for example, "price=gt=10" and "price=gt=20",
+     * have the same shape and can be translated to the same parameterized query.
+     * The positions of the wildcards in the string values, as well as those of the '%' characters
+     * affecting the SQL operators, are part of the shape.
+     * @param sc the condition
+     * @return the shape or null if the condition or one of its children is a custom condition
+     */
+    public static String getShape(SearchCondition<?> sc) {
+        StringBuilder sb = new StringBuilder();
+        return appendShape(sb, sc) ? sb.toString() : null;
+    }
+    
+    private static boolean appendShape(StringBuilder sb, SearchCondition<?> sc) {
+        PrimitiveStatement st = sc.getStatement();
+        if (st != null) {
+            if (st.getProperty() == null || st.getValue() == null) {
+                return false;
+            }
+            Object value = st.getValue();
+            sb.append(st.getProperty()).append(' ').append(st.getCondition().name())
+                .append(' ').append(value.getClass().getName());
+            // the nested and the collection properties keep the string to match in their beans 
+            Object leafValue = getLeafValue(st.getProperty(), value);
+            if (leafValue instanceof String) {
+                sb.append(' ');
+                appendWildcardShape(sb, (String)leafValue);
+            }
+            if (st instanceof CollectionCheckStatement) {
+                CollectionCheckInfo info = ((CollectionCheckStatement)st).getCollectionCheckInfo();
+                sb.append(' ').append(info.getCollectionCheckType().name());
+            }
+            return true;
+        }
+        ConditionType ct = sc.getConditionType();
+        if (ct != ConditionType.AND && ct != ConditionType.OR) {
+            return false;
+        }
+        List<? extends SearchCondition<?>> children = sc.getSearchConditions();
+        if (children == null) {
+            return false;
+        }
+        sb.append(ct.name()).append('(');
+        for (int i = 0; i < children.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            if (!appendShape(sb, children.get(i))) {
+                return false;
+            }
+        }
+        sb.append(')');
+        return true;
+    }
+    
+    /**
+     * Returns the value the visitors match the property against, the parsers keep the values of 
+     * the nested properties, such as "owner.name", in the top level beans and the values of the 
+     * collection properties in the singleton collections
+     */
+    private static Object getLeafValue(String property, Object value) {
+        int index = property.indexOf('.');
+        while (index != -1 && value != null) {
+            int next = property.indexOf('.', index + 1);
+            String name = next == -1 ? property.substring(index + 1) : property.substring(index + 1, next);
+            value = getFirstValue(value);
+            if (value == null) {
+                return null;
+            }
+            Beanspector<Object> beanspector = new Beanspector<Object>(value);
+            Method getter = beanspector.getGetter(name);
+            if (getter == null) {
+                return null;
+            }
+            try {
+                value = beanspector.getValue(getter);
+            } catch (Throwable ex) {
+                return null;
+            }
+            index = next;
+        }
+        return getFirstValue(value);
+    }
+    
+    private static Object getFirstValue(Object value) {
+        if (value instanceof Collection) {
+            Collection<?> values = (Collection<?>)value;
+            return values.isEmpty() ? null : values.iterator().next();
+        }
+        return value;
+    }
+    
+    private static void appendWildcardShape(StringBuilder sb, String value) {
+        // every run of the literal characters is replaced by a single '?'
+        boolean literal = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '*' || c == '%') {
+                sb.append(c);
+                literal = false;
+            } else if (!literal) {
+                sb.append('?');
+                literal = true;
+            }
+        }
+    }
+    
     public static String toSqlWildcardString(String value, boolean alwaysWildcard) {
         if (!value.contains("*")) {
             return alwaysWildcard ? "%" + value + "%" : value;
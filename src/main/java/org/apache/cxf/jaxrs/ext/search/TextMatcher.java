@@ -0,0 +1,193 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.ext.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Precompiled text pattern where the leading and trailing '*' match any sequence of characters, 
+ * including an empty one. By default the inner '*' characters are matched literally, 
+ * the way the search conditions have always matched them, with {@link #INNER_WILDCARDS} they
+ * are wildcards too and the pattern is matched as a glob.
+ * Matching does not allocate, the matcher is immutable and thread-safe.
+ */
+public final class TextMatcher {
+    public static final char WILDCARD = '*';
+    
+    /**
+     * Ignore the case of the characters
+     */
+    public static final int CASE_INSENSITIVE = 1;
+    /**
+     * Treat the '*' characters found inside the pattern as wildcards
+     */
+    public static final int INNER_WILDCARDS = 2;
+    
+    private enum Kind {
+        EXACT, PREFIX, SUFFIX, CONTAINS, GLOB
+    }
+    
+    private final String pattern;
+    private final int flags;
+    private final boolean ignoreCase;
+    private final Kind kind;
+    // the pattern without the leading and trailing wildcards
+    private final String text;
+    // GLOB only: the pattern split around the wildcards, the leading and trailing ones can be empty
+    private final String[] segments;
+    
+    private TextMatcher(String pattern, int flags) {
+        this.pattern = pattern;
+        this.flags = flags;
+        this.ignoreCase = (flags & CASE_INSENSITIVE) != 0;
+        int length = pattern.length();
+        boolean starts = length > 0 && pattern.charAt(0) == WILDCARD;
+        boolean ends = length > 1 && pattern.charAt(length - 1) == WILDCARD;
+        text = pattern.substring(starts ? 1 : 0, ends ? length - 1 : length);
+        if ((flags & INNER_WILDCARDS) != 0 && text.indexOf(WILDCARD) != -1) {
+            kind = Kind.GLOB;
+            segments = split(pattern);
+        } else {
+            if (starts && ends) {
+                kind = Kind.CONTAINS;
+            } else if (starts) {
+                kind = Kind.SUFFIX;
+            } else if (ends) {
+                kind = Kind.PREFIX;
+            } else {
+                kind = Kind.EXACT;
+            }
+            segments = null;
+        }
+    }
+    
+    /**
+     * Compiles the case-sensitive matcher
+     * @param pattern the pattern
+     * @return the matcher
+     */
+    public static TextMatcher compile(String pattern) {
+        return compile(pattern, 0);
+    }
+    
+    /**
+     * Compiles the matcher
+     * @param pattern the pattern
+     * @param flags {@link #CASE_INSENSITIVE} and {@link #INNER_WILDCARDS} bit mask
+     * @return the matcher
+     */
+    public static TextMatcher compile(String pattern, int flags) {
+        if (pattern == null) {
+            throw new IllegalArgumentException("pattern is null");
+        }
+        return new TextMatcher(pattern, flags);
+    }
+    
+    public String getPattern() {
+        return pattern;
+    }
+    
+    public int getFlags() {
+        return flags;
+    }
+    
+    /**
+     * @return true if the pattern contains no wildcards
+     */
+    public boolean isExact() {
+        return kind == Kind.EXACT;
+    }
+    
+    /**
+     * @return true if the pattern has the leading or trailing wildcard only
+     */
+    public boolean isPrefixOrSuffix() {
+        return kind == Kind.PREFIX || kind == Kind.SUFFIX;
+    }
+    
+    public boolean matches(String value) {
+        switch (kind) {
+        case EXACT:
+            return ignoreCase ? value.equalsIgnoreCase(text) : value.equals(text);
+        case PREFIX:
+            return value.regionMatches(ignoreCase, 0, text, 0, text.length());
+        case SUFFIX:
+            return value.regionMatches(ignoreCase, value.length() - text.length(), text, 0, text.length());
+        case CONTAINS:
+            return indexOf(value, text, 0, value.length()) != -1;
+        default:
+            return globMatches(value);
+        }
+    }
+    
+    private boolean globMatches(String value) {
+        String first = segments[0];
+        String last = segments[segments.length - 1];
+        int from = first.length();
+        int to = value.length() - last.length();
+        if (to < from
+            || !value.regionMatches(ignoreCase, 0, first, 0, first.length())
+            || !value.regionMatches(ignoreCase, to, last, 0, last.length())) {
+            return false;
+        }
+        // the leftmost occurrence of every inner segment leaves most room for the next ones
+        for (int i = 1; i < segments.length - 1; i++) {
+            String segment = segments[i];
+            int index = indexOf(value, segment, from, to);
+            if (index == -1) {
+                return false;
+            }
+            from = index + segment.length();
+        }
+        return true;
+    }
+    
+    // finds the str within value[from, to)
+    private int indexOf(String value, String str, int from, int to) {
+        int length = str.length();
+        if (!ignoreCase && to == value.length()) {
+            return value.indexOf(str, from);
+        }
+        for (int i = from; i + length <= to; i++) {
+            if (value.regionMatches(ignoreCase, i, str, 0, length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private static String[] split(String pattern) {
+        List<String> parts = new ArrayList<String>();
+        int start = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            if (pattern.charAt(i) == WILDCARD) {
+                parts.add(pattern.substring(start, i));
+                start = i + 1;
+            }
+        }
+        parts.add(pattern.substring(start));
+        return parts.toArray(new String[parts.size()]);
+    }
+    
+    @Override
+    public String toString() {
+        return pattern;
+    }
+}
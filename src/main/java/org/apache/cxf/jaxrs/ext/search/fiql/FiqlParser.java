@@ -22,11 +22,10 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.apache.cxf.jaxrs.ext.search.AbstractSearchConditionParser;
 import org.apache.cxf.jaxrs.ext.search.AndSearchCondition;
+import org.apache.cxf.jaxrs.ext.search.Beanspector;
 import org.apache.cxf.jaxrs.ext.search.Beanspector.TypeInfo;
 import org.apache.cxf.jaxrs.ext.search.ConditionType;
 import org.apache.cxf.jaxrs.ext.search.OrSearchCondition;
@@ -42,6 +41,10 @@ import org.apache.cxf.message.MessageUtils;
  * construct {@link SearchCondition} structure. Since this class operates on Java type T, not on XML
  * structures "selectors" part of specification is not applicable; instead selectors describes getters of type
  * T used as search condition type (see {@link SimpleSearchCondition#isMet(Object)} for details.
+ * <p>
+ * FiqlParser instances are thread-safe and can be shared, all the parsing state is local 
+ * to the {@link #parse(String)} call.
+ * </p>
  * 
  * @param <T> type of search condition.
  */
@@ -65,8 +68,8 @@ public class FiqlParser<T> extends AbstractSearchConditionParser<T> {
     protected static final String EXTENSION_COUNT_OPEN = EXTENSION_COUNT + "(";
     
     private static final Map<String, ConditionType> OPERATORS_MAP;
-    private static final Pattern COMPARATORS_PATTERN;
-    private static final Pattern COMPARATORS_PATTERN_SINGLE_EQUALS;
+    private static final String[] COMPARATORS = {GT, GE, LT, LE, EQ, NEQ};
+    private static final String[] COMPARATORS_SINGLE_EQUALS = {GT, GE, LT, LE, EQ, NEQ, "="};
     
     static {
         // operatorsMap
@@ -85,19 +88,10 @@ public class FiqlParser<T> extends AbstractSearchConditionParser<T> {
         CONDITION_MAP.put(ConditionType.LESS_OR_EQUALS, LE);
         CONDITION_MAP.put(ConditionType.EQUALS, EQ);
         CONDITION_MAP.put(ConditionType.NOT_EQUALS, NEQ);
-        
-        
-        // pattern
-        String comparators = GT + "|" + GE + "|" + LT + "|" + LE + "|" + EQ + "|" + NEQ;
-        String s1 = "[\\p{ASCII}]+(" + comparators + ")";
-        COMPARATORS_PATTERN = Pattern.compile(s1);
-        
-        String s2 = "[\\p{ASCII}]+(" + comparators + "|" + "=" + ")";
-        COMPARATORS_PATTERN_SINGLE_EQUALS = Pattern.compile(s2);
     }
 
-    private Map<String, ConditionType> operatorsMap = OPERATORS_MAP;
-    private Pattern comparatorsPattern = COMPARATORS_PATTERN;
+    private final Map<String, ConditionType> operatorsMap;
+    private final String[] comparators;
     /**
      * Creates FIQL parser.
      * 
@@ -132,9 +126,13 @@ public class FiqlParser<T> extends AbstractSearchConditionParser<T> {
         super(tclass, contextProperties, beanProperties);
         
         if (MessageUtils.isTrue(this.contextProperties.get(SUPPORT_SINGLE_EQUALS))) {
-            operatorsMap = new HashMap<String, ConditionType>(operatorsMap);
-            operatorsMap.put("=", ConditionType.EQUALS);
-            comparatorsPattern = COMPARATORS_PATTERN_SINGLE_EQUALS;
+            Map<String, ConditionType> operators = new HashMap<String, ConditionType>(OPERATORS_MAP);
+            operators.put("=", ConditionType.EQUALS);
+            operatorsMap = Collections.unmodifiableMap(operators);
+            comparators = COMPARATORS_SINGLE_EQUALS;
+        } else {
+            operatorsMap = OPERATORS_MAP;
+            comparators = COMPARATORS;
         }
     }
     
@@ -161,114 +159,76 @@ public class FiqlParser<T> extends AbstractSearchConditionParser<T> {
      * @throws SearchParseException when expression does not follow FIQL grammar
      */
     public SearchCondition<T> parse(String fiqlExpression) throws SearchParseException {
-        ASTNode<T> ast = parseAndsOrsBrackets(fiqlExpression);
+        ASTNode<T> ast = new ExpressionParser(fiqlExpression).parse();
         return ast.build();
     }
 
-    private ASTNode<T> parseAndsOrsBrackets(String expr) throws SearchParseException {
-        List<String> subexpressions = new ArrayList<String>();
-        List<String> operators = new ArrayList<String>();
-        int level = 0;
-        int lastIdx = 0;
-        int idx = 0;
-        for (idx = 0; idx < expr.length(); idx++) {
-            char c = expr.charAt(idx);
-            if (c == '(') {
-                level++;
-            } else if (c == ')') {
-                level--;
-                if (level < 0) {
-                    throw new SearchParseException(String.format("Unexpected closing bracket at position %d",
-                                                               idx));
-                }
-            }
-            String cs = Character.toString(c);
-            boolean isOperator = AND.equals(cs) || OR.equals(cs);
-            if (level == 0 && isOperator) {
-                String s1 = expr.substring(lastIdx, idx);
-                String s2 = expr.substring(idx, idx + 1);
-                subexpressions.add(s1);
-                operators.add(s2);
-                lastIdx = idx + 1;
-            }
-            boolean isEnd = idx == expr.length() - 1;
-            if (isEnd) {
-                String s1 = expr.substring(lastIdx, idx + 1);
-                subexpressions.add(s1);
-                operators.add(null);
-                lastIdx = idx + 1;
-            }
+    private Comparison parseComparison(CharSequence expr, int start, int end) throws SearchParseException {
+        int opStart = findComparator(expr, start, end);
+        if (opStart == -1) {
+            throw new SearchParseException("Not a comparison expression: " + expr.subSequence(start, end));
         }
-        if (level != 0) {
-            throw new SearchParseException(String
-                .format("Unmatched opening and closing brackets in expression: %s", expr));
+        String operator = getComparator(expr, opStart, end);
+        int valueStart = opStart + operator.length();
+        if (valueStart == end) {
+            throw new SearchParseException("Not a comparison expression: " + expr.subSequence(start, end));
         }
-        if (operators.get(operators.size() - 1) != null) {
-            String op = operators.get(operators.size() - 1);
-            String ex = subexpressions.get(subexpressions.size() - 1);
-            throw new SearchParseException("Dangling operator at the end of expression: ..." + ex + op);
+        String propertyName = expr.subSequence(start, opStart).toString();
+        String value = expr.subSequence(valueStart, end).toString();
+        
+        String name = unwrapSetter(propertyName);
+        
+        name = getActualSetterName(name);
+        TypeInfoObject castedValue = parseType(propertyName, name, value);
+        if (castedValue != null) {
+            return new Comparison(name, operator, castedValue);
+        } else {
+            return null;
         }
-        // looking for adjacent ANDs then group them into ORs
-        // Note: in case not ANDs is found (e.g only ORs) every single subexpression is
-        // treated as "single item group of ANDs"
-        int from = 0;
-        int to = 0;
-        SubExpression ors = new SubExpression(OR);
-        while (to < operators.size()) {
-            while (to < operators.size() && AND.equals(operators.get(to))) {
-                to++;
+    }
+    
+    /**
+     * Finds the comparator selected by the "[\\p{ASCII}]+(comparators)" expression
+     * the comparisons have been matched with: the rightmost comparator preceded by 
+     * ASCII characters only, the comparators being tried in the declaration order.
+     */
+    private int findComparator(CharSequence expr, int start, int end) {
+        int runStart = start;
+        while (runStart < end) {
+            int runEnd = runStart;
+            while (runEnd < end && expr.charAt(runEnd) < 128) {
+                runEnd++;
             }
-            SubExpression ands = new SubExpression(AND);
-            for (; from <= to; from++) {
-                String subex = subexpressions.get(from);
-                ASTNode<T> node = null;
-                if (subex.startsWith("(")) {
-                    node = parseAndsOrsBrackets(subex.substring(1, subex.length() - 1));
-                } else {
-                    node = parseComparison(subex);
+            for (int i = runEnd - 1; i > runStart; i--) {
+                if (getComparator(expr, i, end) != null) {
+                    return i;
                 }
-                if (node != null) {
-                    ands.add(node);
-                }
-            }
-            to = from;
-            if (ands.getSubnodes().size() == 1) {
-                ors.add(ands.getSubnodes().get(0));
-            } else {
-                ors.add(ands);
             }
+            runStart = runEnd + 1;
         }
-        if (ors.getSubnodes().size() == 1) {
-            return ors.getSubnodes().get(0);
-        } else {
-            return ors;
-        }
+        return -1;
     }
-
-    private Comparison parseComparison(String expr) throws SearchParseException {
-        Matcher m = comparatorsPattern.matcher(expr);
-        if (m.find()) {
-            String propertyName = expr.substring(0, m.start(1));
-            String operator = m.group(1);
-            String value = expr.substring(m.end(1));
-            if ("".equals(value)) {
-                throw new SearchParseException("Not a comparison expression: " + expr);
+    
+    private String getComparator(CharSequence expr, int index, int end) {
+        for (String comparator : comparators) {
+            if (regionMatches(expr, index, end, comparator)) {
+                return comparator;
             }
-            
-            String name = unwrapSetter(propertyName);
-        
-            name = getActualSetterName(name);
-            TypeInfoObject castedValue = parseType(propertyName, name, value);
-            if (castedValue != null) {
-                return new Comparison(name, operator, castedValue);
-            } else {
-                return null;
+        }
+        return null;
+    }
+    
+    private static boolean regionMatches(CharSequence expr, int index, int end, String str) {
+        if (index + str.length() > end) {
+            return false;
+        }
+        for (int i = 0; i < str.length(); i++) {
+            if (expr.charAt(index + i) != str.charAt(i)) {
+                return false;
             }
-        } else {
-            throw new SearchParseException("Not a comparison expression: " + expr);
         }
+        return true;
     }
-
     
     private TypeInfoObject parseType(String originalName, String setter, String value) throws SearchParseException {
         TypeInfo typeInfo = getTypeInfo(setter, value);
@@ -289,6 +249,125 @@ public class FiqlParser<T> extends AbstractSearchConditionParser<T> {
         }
     }
     
+    /**
+     * Single pass recursive descent parser working on the expression offsets:
+     * <pre>
+     * expression := ands (',' ands)*
+     * ands       := term (';' term)*
+     * term       := '(' expression ')' | comparison
+     * </pre>
+     * Comparison values may contain balanced brackets.
+     */
+    private class ExpressionParser {
+        private final CharSequence expr;
+        private final int length;
+        private int pos;
+        
+        ExpressionParser(CharSequence expr) {
+            this.expr = expr;
+            this.length = expr.length();
+        }
+        
+        ASTNode<T> parse() throws SearchParseException {
+            if (length == 0) {
+                throw new SearchParseException("Empty search expression");
+            }
+            ASTNode<T> node = parseOrs();
+            if (pos < length) {
+                throw new SearchParseException(String.format("Unexpected closing bracket at position %d",
+                                                             pos));
+            }
+            return node;
+        }
+        
+        private ASTNode<T> parseOrs() throws SearchParseException {
+            ASTNode<T> first = parseAnds();
+            if (!nextIs(',')) {
+                return first;
+            }
+            SubExpression ors = new SubExpression(OR);
+            ors.add(first);
+            do {
+                pos++;
+                ors.add(parseAnds());
+            } while (nextIs(','));
+            return ors;
+        }
+        
+        private ASTNode<T> parseAnds() throws SearchParseException {
+            ASTNode<T> first = parseTerm();
+            if (!nextIs(';')) {
+                return first;
+            }
+            SubExpression ands = new SubExpression(AND);
+            ands.add(first);
+            do {
+                pos++;
+                ands.add(parseTerm());
+            } while (nextIs(';'));
+            return ands;
+        }
+        
+        private ASTNode<T> parseTerm() throws SearchParseException {
+            if (!nextIs('(')) {
+                return parseConstraint();
+            }
+            int openPos = pos++;
+            ASTNode<T> node = parseOrs();
+            if (!nextIs(')')) {
+                throw new SearchParseException(String.format("Unmatched opening bracket at position %d",
+                                                             openPos));
+            }
+            pos++;
+            if (pos < length && !nextIs(';') && !nextIs(',') && !nextIs(')')) {
+                throw new SearchParseException(String.format("Unexpected character '%c' at position %d", 
+                                                             expr.charAt(pos), pos));
+            }
+            return node;
+        }
+        
+        private ASTNode<T> parseConstraint() throws SearchParseException {
+            int start = pos;
+            int level = 0;
+            int openPos = -1;
+            for (; pos < length; pos++) {
+                char c = expr.charAt(pos);
+                if (c == '(') {
+                    if (level++ == 0) {
+                        openPos = pos;
+                    }
+                } else if (c == ')') {
+                    if (level == 0) {
+                        break;
+                    }
+                    level--;
+                } else if (level == 0 && (c == ';' || c == ',')) {
+                    break;
+                }
+            }
+            if (level != 0) {
+                throw new SearchParseException(String.format("Unmatched opening bracket at position %d",
+                                                             openPos));
+            }
+            if (start == pos) {
+                if (pos == length && start > 0) {
+                    throw new SearchParseException("Dangling operator at the end of expression: ..." 
+                        + expr.subSequence(Math.max(0, start - 10), start));
+                }
+                if (nextIs(')')) {
+                    throw new SearchParseException(String.format("Unexpected closing bracket at position %d",
+                                                                 pos));
+                }
+                throw new SearchParseException(String.format("Missing comparison at position %d", start));
+            }
+            return parseComparison(expr, start, pos);
+        }
+        
+        private boolean nextIs(char c) {
+            return pos < length && expr.charAt(pos) == c;
+        }
+    }
+    
     // node of abstract syntax tree
     private interface ASTNode<T> {
         SearchCondition<T> build() throws SearchParseException;
@@ -380,8 +459,10 @@ public class FiqlParser<T> extends AbstractSearchConditionParser<T> {
         private T createTemplate(String setter) throws SearchParseException {
             try {
                 if (beanspector != null) {
-                    beanspector.instantiate().setValue(setter, tvalue.getObject());
-                    return beanspector.getBean();
+                    // the parser's own beanspector is shared by concurrent parse calls
+                    Beanspector<T> templateBeanspector = new Beanspector<T>(conditionClass);
+                    templateBeanspector.instantiate().setValue(setter, tvalue.getObject());
+                    return templateBeanspector.getBean();
                 } else {
                     SearchBean bean = (SearchBean)conditionClass.newInstance();
                     bean.set(setter, tvalue.getObject().toString());
@@ -21,6 +21,7 @@ package org.apache.cxf.jaxrs.ext.search.jpa;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -31,10 +32,14 @@ import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.From;
 import javax.persistence.criteria.Join;
+import javax.persistence.criteria.ParameterExpression;
 import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+import javax.persistence.metamodel.SingularAttribute;
 
 import org.apache.cxf.jaxrs.ext.search.ConditionType;
 import org.apache.cxf.jaxrs.ext.search.OrSearchCondition;
@@ -42,7 +47,10 @@ import org.apache.cxf.jaxrs.ext.search.PrimitiveStatement;
 import org.apache.cxf.jaxrs.ext.search.SearchCondition;
 import org.apache.cxf.jaxrs.ext.search.SearchUtils;
 import org.apache.cxf.jaxrs.ext.search.collections.CollectionCheckInfo;
+import org.apache.cxf.jaxrs.ext.search.collections.CollectionCheckStatement;
+import org.apache.cxf.jaxrs.ext.search.jpa.JPAPropertyPaths.PropertyPath;
 import org.apache.cxf.jaxrs.ext.search.visitor.AbstractSearchConditionVisitor;
+import org.apache.cxf.jaxrs.ext.search.visitor.QueryTemplateCache;
 
 public abstract class AbstractJPATypedQueryVisitor<T, T1, E> 
     extends AbstractSearchConditionVisitor<T, E> {
@@ -56,6 +64,20 @@ public abstract class AbstractJPATypedQueryVisitor<T, T1, E>
     private Stack<List<Predicate>> predStack = new Stack<List<Predicate>>();
     private boolean criteriaFinalized;
     private Set<String> joinProperties;
+    private boolean parameterized;
+    private QueryTemplateCache<JPAQueryTemplate<T1>> templateCache;
+    private String shape;
+    private JPAQueryTemplate<T1> template;
+    private List<ParameterExpression<?>> parameters;
+    private List<Object> parameterValues;
+    private JPAPropertyPaths<T> propertyPaths;
+    private boolean existsSubqueries;
+    private Map<String, List<SharedJoin>> joins = new LinkedHashMap<String, List<SharedJoin>>();
+    private List<Integer> positionIndexes = new ArrayList<Integer>();
+    private List<Boolean> positionOrs = new ArrayList<Boolean>();
+    private Position currentPosition;
+    private int aliasCount;
+    private SearchCondition<T> condition;
     
     protected AbstractJPATypedQueryVisitor(EntityManager em, Class<T> tClass) {
         this(em, tClass, null, null, null);
@@ -113,19 +135,49 @@ public abstract class AbstractJPATypedQueryVisitor<T, T1, E>
     }
     
     public void visit(SearchCondition<T> sc) {
-        if (builder == null) {
-            builder = em.getCriteriaBuilder();
+        if (criteriaFinalized) {
+            // the previous query has been completed, the visitor is reused
+            reset();
+        }
+        if (cq == null) {
+            condition = sc;
+            if (builder == null) {
+                builder = em.getCriteriaBuilder();
+            }
+            if (propertyPaths == null) {
+                propertyPaths = new JPAPropertyPaths<T>(em.getMetamodel(), tClass);
+            }
+            if (parameterized) {
+                parameters = new ArrayList<ParameterExpression<?>>();
+                parameterValues = new ArrayList<Object>();
+                if (templateCache != null) {
+                    shape = SearchUtils.getShape(sc);
+                    template = shape == null ? null : templateCache.get(shape);
+                }
+            }
+            if (template != null) {
+                useTemplate(sc);
+                return;
+            }
             cq = builder.createQuery(queryClass);
-            root = cq.from(tClass);
+            aliasCount = 0;
+            root = alias(cq.from(tClass));
             predStack.push(new ArrayList<Predicate>());
         }
         if (sc.getStatement() != null) {
             predStack.peek().add(buildPredicate(sc.getStatement()));
         } else {
             predStack.push(new ArrayList<Predicate>());
+            int depth = positionIndexes.size();
+            positionIndexes.add(0);
+            positionOrs.add(sc instanceof OrSearchCondition);
+            int index = 0;
             for (SearchCondition<T> condition : sc.getSearchConditions()) {
+                positionIndexes.set(depth, index++);
                 condition.accept(this);
             }
+            positionIndexes.remove(depth);
+            positionOrs.remove(depth);
             List<Predicate> predsList = predStack.pop();
             Predicate[] preds = predsList.toArray(new Predicate[predsList.size()]);
             Predicate newPred;
@@ -138,6 +190,144 @@ public abstract class AbstractJPATypedQueryVisitor<T, T1, E>
         }
     }
 
+    /**
+     * Discards the state of the current query so that the visitor can translate 
+     * the next condition. The configuration, such as the field map, the join properties
+     * and the template cache, is kept. The visitor also resets itself when it visits
+     * a new condition after the criteria query of the previous one has been requested.
+     * The visitor is not thread-safe and can only be reused by one thread at a time. 
+     */
+    public void reset() {
+        cq = null;
+        root = null;
+        predStack.clear();
+        criteriaFinalized = false;
+        shape = null;
+        template = null;
+        parameters = null;
+        parameterValues = null;
+        joins.clear();
+        positionIndexes.clear();
+        positionOrs.clear();
+        currentPosition = null;
+        condition = null;
+    }
+    
+    /**
+     * Discards the state of the current query and sets the entity manager 
+     * to be used for the next one
+     * @param entityManager the entity manager
+     */
+    public void reset(EntityManager entityManager) {
+        reset();
+        if (em != entityManager) {
+            em = entityManager;
+            builder = null;
+        }
+    }
+    
+    public JPAPropertyPaths<T> getPropertyPaths() {
+        return propertyPaths;
+    }
+    
+    /**
+     * Sets the property paths resolved from the metamodel, the visitor creates its own
+     * paths from the metamodel of its entity manager by default. The paths can be shared
+     * between the visitors querying the same entity.
+     * @param propertyPaths the paths
+     */
+    public void setPropertyPaths(JPAPropertyPaths<T> propertyPaths) {
+        this.propertyPaths = propertyPaths;
+    }
+    
+    public boolean isExistsSubqueries() {
+        return existsSubqueries;
+    }
+
+    /**
+     * Sets if the statements on the collection properties are translated into 
+     * the correlated EXISTS subqueries instead of the joins of the main query, which 
+     * avoids multiplying the rows of the main query. Only the properties resolved from 
+     * the metamodel are translated this way. 
+     * @param existsSubqueries true if the EXISTS subqueries are used
+     */
+    public void setExistsSubqueries(boolean existsSubqueries) {
+        this.existsSubqueries = existsSubqueries;
+    }
+    
+    /**
+     * Returns the joins created by the main query for the last visited condition, the map is
+     * empty if the query has been taken from the template cache.
+     * The statements on the same collection property share a join if they are 
+     * alternatives of the same OR condition, the statements of the AND conditions
+     * get their own joins because each of them may be met by a different collection element.
+     * @return the number of the joins per joined property path
+     */
+    public Map<String, Integer> getJoinCounts() {
+        Map<String, Integer> counts = new LinkedHashMap<String, Integer>();
+        for (Map.Entry<String, List<SharedJoin>> entry : joins.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().size());
+        }
+        return counts;
+    }
+    
+    /**
+     * Returns the condition the current query has been translated from 
+     */
+    protected SearchCondition<T> getVisitedCondition() {
+        return condition;
+    }
+    
+    /**
+     * Copies the configuration of this visitor to the visitor translating the same condition 
+     * into another query, the property paths resolved from the metamodel are shared
+     * @param visitor the visitor created with the same field map and the join properties
+     */
+    protected void copyConfiguration(AbstractJPATypedQueryVisitor<T, ?, ?> visitor) {
+        visitor.setPrimitiveFieldTypeMap(getPrimitiveFieldTypeMap());
+        visitor.setValidator(getValidator());
+        visitor.setWildcardStringMatch(isWildcardStringMatch());
+        visitor.setParameterized(parameterized);
+        visitor.setExistsSubqueries(existsSubqueries);
+        visitor.setPropertyPaths(propertyPaths);
+    }
+    
+    /**
+     * Translates the visited condition once more into the criteria query of the given class 
+     * @param cls the query class
+     * @return the visitor with the new query
+     */
+    protected <Q> JPACriteriaQueryVisitor<T, Q> createCriteriaQueryVisitor(Class<Q> cls) {
+        if (condition == null) {
+            throw new IllegalStateException("No condition has been visited");
+        }
+        JPACriteriaQueryVisitor<T, Q> visitor = 
+            new JPACriteriaQueryVisitor<T, Q>(em, tClass, cls, getFieldMap(), getJoinProperties());
+        copyConfiguration(visitor);
+        condition.accept(visitor);
+        return visitor;
+    }
+    
+    /**
+     * Returns the iterator over the entities matching the visited condition which loads them
+     * in the batches with the keyset pagination, so that the large results, for example, 
+     * written by the JAX-RS StreamingOutput, are not kept in memory at once 
+     * @param attributes the ordering attributes, their combination has to be unique
+     * @param batchSize the number of the entities loaded at once
+     * @return the iterator
+     */
+    public JPAResultIterator<T> iterate(List<SingularAttribute<T, ?>> attributes, int batchSize) {
+        return new JPAResultIterator<T>(this, attributes, batchSize);
+    }
+    
+    protected Class<T> getEntityClass() {
+        return tClass;
+    }
+    
+    protected List<String> getJoinProperties() {
+        return joinProperties == null ? null : new ArrayList<String>(joinProperties);
+    }
+    
     protected CriteriaBuilder getCriteriaBuilder() {
         return builder;
     }
@@ -151,7 +341,7 @@ public abstract class AbstractJPATypedQueryVisitor<T, T1, E>
     }
     
     public TypedQuery<T1> getTypedQuery() {
-        return em.createQuery(getCriteriaQuery());
+        return bindParameters(em.createQuery(getCriteriaQuery()));
     }
     
     public CriteriaQuery<T1> getCriteriaQuery() {
@@ -159,22 +349,163 @@ public abstract class AbstractJPATypedQueryVisitor<T, T1, E>
             List<Predicate> predsList = predStack.pop();
             cq.where(predsList.toArray(new Predicate[predsList.size()]));
             criteriaFinalized = true;
+            if (shape != null) {
+                templateCache.put(shape, new JPAQueryTemplate<T1>(cq, parameters));
+            }
         }
         return cq;
     }
     
+    /**
+     * Binds the values of the parameters of the parameterized criteria query
+     * @param query the query created from the criteria query or its select or order variant 
+     * @return the query
+     */
+    @SuppressWarnings("unchecked")
+    public <Q> TypedQuery<Q> bindParameters(TypedQuery<Q> query) {
+        if (parameters != null) {
+            for (int i = 0; i < parameters.size(); i++) {
+                query.setParameter((ParameterExpression<Object>)parameters.get(i), parameterValues.get(i));
+            }
+        }
+        return query;
+    }
+    
+    /**
+     * Returns the number of the parameters bound by {@link #bindParameters(TypedQuery)}
+     */
+    protected int getParameterCount() {
+        return parameters == null ? 0 : parameters.size();
+    }
+    
+    /**
+     * Removes the parameters following the first ones, the expressions created for them 
+     * must no longer be used by the query
+     * @param count the number of the parameters to keep
+     */
+    protected void removeParameters(int count) {
+        if (parameters != null) {
+            parameters.subList(count, parameters.size()).clear();
+            parameterValues.subList(count, parameterValues.size()).clear();
+        }
+    }
+    
+    public boolean isParameterized() {
+        return parameterized;
+    }
+
+    /**
+     * Sets if the values are represented by the parameter expressions instead of the literals, 
+     * {@link #getTypedQuery()} binds them, the queries created from {@link #getCriteriaQuery()}
+     * have to be bound with {@link #bindParameters(TypedQuery)}.
+     * The criteria queries differing only in their values are then translated the same way and 
+     * the persistence provider can reuse its translation.
+     * @param parameterized true if the parameter expressions are used
+     */
+    public void setParameterized(boolean parameterized) {
+        this.parameterized = parameterized;
+    }
+    
+    /**
+     * Sets the cache of the parameterized criteria queries, the conditions with the same 
+     * {@link SearchUtils#getShape(SearchCondition) shape} will reuse the same criteria query 
+     * and only bind the new values. The cached criteria queries must not be modified and
+     * can only be used with the entity managers created by the same factory.
+     * @param templateCache the cache
+     */
+    protected void setTemplateCache(QueryTemplateCache<JPAQueryTemplate<T1>> templateCache) {
+        this.templateCache = templateCache;
+    }
+    
+    private void useTemplate(SearchCondition<T> sc) {
+        collectParameterValues(sc);
+        parameters.addAll(template.getParameters());
+        cq = template.getCriteriaQuery();
+        root = getTemplateRoot(cq);
+        criteriaFinalized = true;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private Root<T> getTemplateRoot(CriteriaQuery<T1> query) {
+        return (Root<T>)query.getRoots().iterator().next();
+    }
+    
+    private void collectParameterValues(SearchCondition<T> sc) {
+        if (sc.getStatement() != null) {
+            buildPredicate(sc.getStatement());
+        } else {
+            for (SearchCondition<T> condition : sc.getSearchConditions()) {
+                collectParameterValues(condition);
+            }
+        }
+    }
+    
+    /**
+     * Builds the predicate or, if the cached criteria query is used, only records the parameter value
+     */
     private Predicate buildPredicate(PrimitiveStatement ps) {
         String name = ps.getProperty();
         Object propertyValue = ps.getValue();
         validatePropertyValue(name, propertyValue);
         
         name = super.getRealPropertyName(name);
+        PropertyPath propertyPath = propertyPaths == null ? null : propertyPaths.getPath(name);
+        if (propertyPath == null) {
+            return buildPredicateWithClassValue(ps, name, propertyValue);
+        }
+        
+        int last = propertyPath.size() - 1;
+        CollectionCheckInfo collInfo = 
+            ps instanceof CollectionCheckStatement && propertyPath.isCollection(last)
+            ? ((CollectionCheckStatement)ps).getCollectionCheckInfo() : null;
+        Object value = null;
+        Class<?> cls = null;
+        if (collInfo == null) {
+            value = propertyPaths.getValue(propertyPath, propertyValue);
+            cls = getValueClass(propertyPath.getName(last), propertyPath.getJavaType(), value);
+        }
+        if (template != null) {
+            parameterValues.add(collInfo == null 
+                ? toComparisonValue(ps.getCondition(), cls, value) : toCollectionSize(collInfo));
+            return null;
+        }
+        currentPosition = null;
+        if (existsSubqueries && isJoined(propertyPath, collInfo)) {
+            Subquery<T> subquery = cq.subquery(tClass);
+            Root<T> subqueryRoot = alias(subquery.from(tClass));
+            subquery.select(subqueryRoot);
+            Path<?> path = getPath(subqueryRoot, propertyPath, collInfo, false);
+            Predicate pred = collInfo == null 
+                ? doBuildPredicate(ps.getCondition(), path, cls, value) 
+                : doBuildCollectionPredicate(ps.getCondition(), path, collInfo);
+            subquery.where(builder.equal(subqueryRoot, root), pred);
+            return builder.exists(subquery);
+        }
+        Path<?> path = getPath(root, propertyPath, collInfo, true);
+        
+        return collInfo == null 
+            ? doBuildPredicate(ps.getCondition(), path, cls, value) 
+            : doBuildCollectionPredicate(ps.getCondition(), path, collInfo);
+    }
+    
+    /**
+     * Builds the predicate for the property which can not be resolved from the metamodel,
+     * the types are discovered from the parsed value 
+     */
+    private Predicate buildPredicateWithClassValue(PrimitiveStatement ps, String name, Object propertyValue) {
         ClassValue cv = getPrimitiveFieldClass(ps,
                                                name, 
                                                ps.getValue().getClass(), 
                                                ps.getValueType(), 
                                                propertyValue); 
         CollectionCheckInfo collInfo = cv.getCollectionCheckInfo();
+        if (template != null) {
+            parameterValues.add(collInfo == null 
+                ? toComparisonValue(ps.getCondition(), cv.getCls(), cv.getValue()) 
+                : toCollectionSize(collInfo));
+            return null;
+        }
+        currentPosition = null;
         Path<?> path = getPath(root, name, cv, collInfo);
         
         Predicate pred = collInfo == null 
@@ -183,50 +514,56 @@ public abstract class AbstractJPATypedQueryVisitor<T, T1, E>
         
         return pred;
     }
+    
+    private Class<?> getValueClass(String name, Class<?> javaType, Object value) {
+        Map<String, Class<?>> typeMap = getPrimitiveFieldTypeMap();
+        Class<?> cls = typeMap == null ? null : typeMap.get(name);
+        if (cls == null) {
+            cls = javaType;
+            if (value != null && !cls.isInstance(value)) {
+                // primitive or converted attribute types
+                cls = value.getClass();
+            }
+        }
+        return cls;
+    }
 
     @SuppressWarnings({ "unchecked", "rawtypes" })
     private Predicate doBuildPredicate(ConditionType ct, Path<?> path, Class<?> valueClazz, Object value) {
         
         Class<? extends Comparable> clazz = (Class<? extends Comparable>)valueClazz;
         Expression<? extends Comparable> exp = path.as(clazz);
+        Object theValue = toComparisonValue(ct, clazz, value);
+        boolean like = clazz.equals(String.class) && theValue.toString().contains("%");
+        Expression valueExp = toExpression(like ? String.class : clazz, theValue);
         
         Predicate pred = null;
         switch (ct) {
         case GREATER_THAN:
-            pred = builder.greaterThan(exp, clazz.cast(value));
+            pred = builder.greaterThan(exp, valueExp);
             break;
         case EQUALS:
-            if (clazz.equals(String.class)) {
-                String theValue = SearchUtils.toSqlWildcardString(value.toString(), isWildcardStringMatch());
-                if (theValue.contains("%")) {
-                    pred = builder.like((Expression<String>)exp, theValue);
-                } else {
-                    pred = builder.equal(exp, clazz.cast(value));
-                }
+            if (like) {
+                pred = builder.like((Expression<String>)exp, valueExp);
             } else {
-                pred = builder.equal(exp, clazz.cast(value));
+                pred = builder.equal(exp, valueExp);
             }
             break;
         case NOT_EQUALS:
-            if (clazz.equals(String.class)) {
-                String theValue = SearchUtils.toSqlWildcardString(value.toString(), isWildcardStringMatch());
-                if (theValue.contains("%")) {
-                    pred = builder.notLike((Expression<String>)exp, theValue);
-                } else {
-                    pred = builder.notEqual(exp, clazz.cast(value));
-                }
+            if (like) {
+                pred = builder.notLike((Expression<String>)exp, valueExp);
             } else {
-                pred = builder.notEqual(exp, clazz.cast(value));
+                pred = builder.notEqual(exp, valueExp);
             }
             break;
         case LESS_THAN:
-            pred = builder.lessThan(exp, clazz.cast(value));
+            pred = builder.lessThan(exp, valueExp);
             break;
         case LESS_OR_EQUALS:
-            pred = builder.lessThanOrEqualTo(exp, clazz.cast(value));
+            pred = builder.lessThanOrEqualTo(exp, valueExp);
             break;
         case GREATER_OR_EQUALS:
-            pred = builder.greaterThanOrEqualTo(exp, clazz.cast(value));
+            pred = builder.greaterThanOrEqualTo(exp, valueExp);
             break;
         default: 
             break;
@@ -234,12 +571,43 @@ public abstract class AbstractJPATypedQueryVisitor<T, T1, E>
         return pred;
     }
     
+    /**
+     * Returns the value the property is compared with, the strings are converted 
+     * to the LIKE patterns if needed
+     */
+    private Object toComparisonValue(ConditionType ct, Class<?> clazz, Object value) {
+        if (clazz.equals(String.class) && (ct == ConditionType.EQUALS || ct == ConditionType.NOT_EQUALS)) {
+            return SearchUtils.toSqlWildcardString(value.toString(), isWildcardStringMatch());
+        }
+        return clazz.cast(value);
+    }
+    
+    private static Integer toCollectionSize(CollectionCheckInfo collInfo) {
+        return Integer.valueOf(collInfo.getCollectionCheckValue().toString());
+    }
+    
+    /**
+     * Returns the literal or, if the visitor is parameterized, the parameter expression
+     * which will be bound to the value by {@link #bindParameters(TypedQuery)} 
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    protected Expression<?> toExpression(Class<?> cls, Object value) {
+        if (!parameterized) {
+            return builder.literal(value);
+        }
+        ParameterExpression<?> param = builder.parameter(cls.isPrimitive() ? (Class)value.getClass() : cls);
+        parameters.add(param);
+        parameterValues.add(value);
+        return param;
+    }
+    
     @SuppressWarnings({ "unchecked", "rawtypes" })
     private Predicate doBuildCollectionPredicate(ConditionType ct, Path<?> path, CollectionCheckInfo collInfo) {
         Predicate pred = null;
         
         Expression<Integer> exp = builder.size((Expression<? extends Collection>)path);
-        Integer value = Integer.valueOf(collInfo.getCollectionCheckValue().toString());
+        Expression<Integer> value = 
+            (Expression<Integer>)toExpression(Integer.class, toCollectionSize(collInfo));
         
         switch (ct) {
         case GREATER_THAN:
@@ -266,30 +634,140 @@ public abstract class AbstractJPATypedQueryVisitor<T, T1, E>
         return pred;
     }
     
+    private boolean isJoined(PropertyPath propertyPath, CollectionCheckInfo collInfo) {
+        int last = propertyPath.size() - 1;
+        for (int i = 0; i <= last; i++) {
+            if ((i < last || collInfo == null) 
+                && (propertyPath.isCollection(i) || isJoinProperty(propertyPath.getName(i)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private Path<?> getPath(From<?, ?> from, PropertyPath propertyPath, CollectionCheckInfo collInfo, 
+                            boolean shareJoins) {
+        Path<?> element = from;
+        int last = propertyPath.size() - 1;
+        String key = null;
+        for (int i = 0; i <= last; i++) {
+            String name = propertyPath.getName(i);
+            key = key == null ? name : key + "." + name;
+            if ((i < last || collInfo == null)
+                && (propertyPath.isCollection(i) || isJoinProperty(name)) && element instanceof From) {
+                From<?, ?> parent = (From<?, ?>)element;
+                element = shareJoins ? join(parent, key, name) : alias(parent.join(name));
+            } else {
+                element = element.get(name);
+            }
+        }
+        return element;
+    }
+    
     private Path<?> getPath(Path<?> element, String name, ClassValue cv, CollectionCheckInfo collSize) {
-        if (name.contains(".")) {
-            String pre = name.substring(0, name.indexOf('.'));
-            String post = name.substring(name.indexOf('.') + 1);
-            return getPath(getNextPath(element, pre, cv, null), 
-                           post, 
-                           cv,
-                           collSize);
-        } else {
-            return getNextPath(element, name, cv, collSize);
+        String[] names = name.split("\\.");
+        String key = null;
+        for (int i = 0; i < names.length; i++) {
+            key = key == null ? names[i] : key + "." + names[i];
+            CollectionCheckInfo info = i == names.length - 1 ? collSize : null;
+            if (info == null
+                && (cv.isCollection(names[i]) || isJoinProperty(names[i])) && element instanceof From) {
+                element = join((From<?, ?>)element, key, names[i]);
+            } else {
+                element = element.get(names[i]);
+            }
         }
+        return element;
     }
-
-    private Path<?> getNextPath(Path<?> element, String name, ClassValue cv, CollectionCheckInfo collSize) {
-        if (collSize == null
-            && (cv.isCollection(name) || isJoinProperty(name)) && (element == root || element instanceof Join)) {
-            return element == root ? root.join(name) : ((Join<?, ?>)element).join(name);
-        } else {
-            return element.get(name);
+    
+    /**
+     * Returns the join which can be shared with the current statement or creates a new one
+     */
+    private Join<?, ?> join(From<?, ?> from, String key, String name) {
+        if (currentPosition == null) {
+            currentPosition = new Position(positionIndexes, positionOrs);
+        }
+        List<SharedJoin> candidates = joins.get(key);
+        if (candidates == null) {
+            candidates = new ArrayList<SharedJoin>(1);
+            joins.put(key, candidates);
+        }
+        for (SharedJoin candidate : candidates) {
+            if (candidate.from == from && candidate.canBeSharedWith(currentPosition)) {
+                candidate.positions.add(currentPosition);
+                return candidate.join;
+            }
         }
+        Join<?, ?> join = alias(from.join(name));
+        candidates.add(new SharedJoin(from, join, currentPosition));
+        return join;
+    }
+    
+    /**
+     * Sets the alias of the root or the join of the criteria query which will be cached, 
+     * the persistence provider would otherwise set the generated one when it first compiles 
+     * the query, possibly while the other threads are using it
+     */
+    private <F extends From<?, ?>> F alias(F from) {
+        if (shape != null) {
+            from.alias("cachedAlias" + aliasCount++);
+        }
+        return from;
     }
     
     private boolean isJoinProperty(String prop) {
         return joinProperties == null ? false : joinProperties.contains(prop);
     }
     
+    /**
+     * Position of the statement in the condition tree: the indexes of the statement 
+     * and its parents within their parents and the flags telling if the parents are OR conditions 
+     */
+    private static class Position {
+        private final int[] indexes;
+        private final boolean[] ors;
+        
+        Position(List<Integer> indexList, List<Boolean> orList) {
+            indexes = new int[indexList.size()];
+            ors = new boolean[orList.size()];
+            for (int i = 0; i < indexes.length; i++) {
+                indexes[i] = indexList.get(i);
+                ors[i] = orList.get(i);
+            }
+        }
+        
+        /**
+         * Checks if the closest common parent of the statements is an OR condition 
+         */
+        boolean isAlternativeOf(Position other) {
+            int size = Math.min(indexes.length, other.indexes.length);
+            for (int i = 0; i < size; i++) {
+                if (indexes[i] != other.indexes[i]) {
+                    return ors[i];
+                }
+            }
+            return false;
+        }
+    }
+    
+    private static class SharedJoin {
+        private final From<?, ?> from;
+        private final Join<?, ?> join;
+        private final List<Position> positions = new ArrayList<Position>(2);
+        
+        SharedJoin(From<?, ?> from, Join<?, ?> join, Position position) {
+            this.from = from;
+            this.join = join;
+            this.positions.add(position);
+        }
+        
+        boolean canBeSharedWith(Position position) {
+            for (Position p : positions) {
+                if (!p.isAlternativeOf(position)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
 }
@@ -18,6 +18,9 @@
  */
 package org.apache.cxf.jaxrs.ext.search.jpa;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -27,13 +30,25 @@ import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CompoundSelection;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
 import javax.persistence.criteria.Order;
 import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
 import javax.persistence.criteria.Selection;
+import javax.persistence.metamodel.EntityType;
 import javax.persistence.metamodel.SingularAttribute;
 
+import org.apache.cxf.jaxrs.ext.search.KeysetToken;
+import org.apache.cxf.jaxrs.ext.search.SearchParseException;
+
 public class JPACriteriaQueryVisitor<T, E> extends AbstractJPATypedQueryVisitor<T, E, CriteriaQuery<E>> {
 
+    // the restriction the last seek predicate has been added to and the resulting restriction
+    private Predicate seekBase;
+    private Predicate seekRestriction;
+    private int seekParameterCount;
+    
     public JPACriteriaQueryVisitor(EntityManager em, 
                                    Class<T> tClass,
                                    Class<E> queryClass) {
@@ -66,14 +81,51 @@ public class JPACriteriaQueryVisitor<T, E> extends AbstractJPATypedQueryVisitor<
         return getCriteriaQuery();
     }
     
+    /**
+     * Counts the rows matching the visited condition. If the query class is not Long then 
+     * the condition is translated once more into the count query, so the same visitor can provide 
+     * both the results and their number.
+     * @return the number of the rows
+     */
     public Long count() {
-        if (super.getQueryClass() != Long.class) {
-            throw new IllegalStateException("Query class needs to be of type Long");
+        return getCountTypedQuery().getSingleResult();
+    }
+    
+    /**
+     * Returns the query counting the rows matching the visited condition
+     * @see #count()
+     */
+    public TypedQuery<Long> getCountTypedQuery() {
+        JPACriteriaQueryVisitor<T, Long> visitor = getCountVisitor();
+        CriteriaQuery<Long> countQuery = visitor.getQuery();
+        countQuery.select(visitor.getCriteriaBuilder().count(visitor.getRoot()));
+        return visitor.getTypedQuery(countQuery);
+    }
+    
+    /**
+     * Counts the rows matching the visited condition but stops once the limit is exceeded, 
+     * which avoids scanning all the rows when only the fact that there are more rows 
+     * than the limit is important, for example, to show "more than 1000 results"
+     * @param limit the maximum number of the rows to count
+     * @return the number of the rows or limit + 1 if there are more than limit rows 
+     */
+    public long count(int limit) {
+        JPACriteriaQueryVisitor<T, Object> visitor = createCriteriaQueryVisitor(Object.class);
+        CriteriaQuery<Object> query = visitor.getQuery();
+        Root<T> theRoot = visitor.getRoot();
+        EntityType<T> entityType = theRoot.getModel();
+        if (entityType.hasSingleIdAttribute()) {
+            query.select(theRoot.get(entityType.getId(entityType.getIdType().getJavaType())));
         }
-        @SuppressWarnings("unchecked")
-        CriteriaQuery<Long> countQuery = (CriteriaQuery<Long>)getCriteriaQuery();
-        countQuery.select(getCriteriaBuilder().count(getRoot()));
-        return super.getEntityManager().createQuery(countQuery).getSingleResult();
+        TypedQuery<Object> typedQuery = visitor.getTypedQuery(query);
+        typedQuery.setMaxResults(limit + 1);
+        return typedQuery.getResultList().size();
+    }
+    
+    @SuppressWarnings("unchecked")
+    private JPACriteriaQueryVisitor<T, Long> getCountVisitor() {
+        return getQueryClass() == Long.class 
+            ? (JPACriteriaQueryVisitor<T, Long>)this : createCriteriaQueryVisitor(Long.class);
     }
     
     public TypedQuery<E> getOrderedTypedQuery(List<SingularAttribute<T, ?>> attributes, boolean asc) {
@@ -93,6 +145,125 @@ public class JPACriteriaQueryVisitor<T, E> extends AbstractJPATypedQueryVisitor<
         return getCriteriaQuery().orderBy(orders);
     }
     
+    /**
+     * Returns the query ordered by the attributes and restricted to the rows following 
+     * the last row of the previous page and the maximum number of the results, the query
+     * does not need to skip the rows of the previous pages unlike the one using the offset.
+     * The combination of the attributes has to be unique, for example, the last attribute 
+     * can be the id, and the attributes must not be null.
+     * @param attributes the ordering attributes
+     * @param asc true if the ascending order is used
+     * @param token the token created by {@link #getKeysetToken(Object, List)} for the last row 
+     *        of the previous page, null if the first page is requested
+     * @param limit the page size
+     * @return the query
+     * @throws SearchParseException if the token is not valid
+     */
+    public TypedQuery<E> getKeysetTypedQuery(List<SingularAttribute<T, ?>> attributes, boolean asc, 
+                                             String token, int limit) {
+        TypedQuery<E> query = getTypedQuery(keysetOrderBy(attributes, asc, token));
+        query.setMaxResults(limit);
+        return query;
+    }
+    
+    /**
+     * Orders the query by the attributes and restricts it to the rows following the row 
+     * the token has been created for, the seek predicate for the attributes (a, b) and 
+     * the values (x, y) of the last row is "a &gt; x or (a = x and b &gt; y)". The seek predicate 
+     * added by the previous call for the same query is replaced, so the visitor can be asked 
+     * for the next pages.
+     * @see #getKeysetTypedQuery(List, boolean, String, int)
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public CriteriaQuery<E> keysetOrderBy(List<SingularAttribute<T, ?>> attributes, boolean asc, 
+                                          String token) {
+        CriteriaQuery<E> cQuery = orderBy(attributes, asc);
+        Predicate restriction = cQuery.getRestriction();
+        if (restriction != null && restriction == seekRestriction) {
+            restriction = seekBase;
+            removeParameters(seekParameterCount);
+            cQuery.where(restriction == null ? getCriteriaBuilder().conjunction() : restriction);
+        }
+        seekRestriction = null;
+        if (token == null) {
+            return cQuery;
+        }
+        List<Object> values = KeysetToken.decode(token);
+        if (values.size() != attributes.size()) {
+            throw new SearchParseException("Invalid keyset token");
+        }
+        CriteriaBuilder cb = getCriteriaBuilder();
+        int parameterCount = getParameterCount();
+        Predicate seek = null;
+        for (int i = attributes.size() - 1; i >= 0; i--) {
+            SingularAttribute<T, ?> attribute = attributes.get(i);
+            Object value = values.get(i);
+            if (!getWrapperClass(attribute.getJavaType()).isInstance(value)) {
+                throw new SearchParseException("Invalid keyset token");
+            }
+            Expression path = getRoot().get(attribute);
+            Expression valueExp = toExpression(attribute.getJavaType(), value);
+            Predicate pred = asc ? cb.greaterThan(path, valueExp) : cb.lessThan(path, valueExp);
+            if (seek != null) {
+                pred = cb.or(pred, 
+                             cb.and(cb.equal(path, toExpression(attribute.getJavaType(), value)), seek));
+            }
+            seek = pred;
+        }
+        cQuery.where(restriction == null ? seek : cb.and(restriction, seek));
+        seekBase = restriction;
+        seekRestriction = cQuery.getRestriction();
+        seekParameterCount = parameterCount;
+        return cQuery;
+    }
+    
+    /**
+     * Creates the token for the keyset pagination
+     * @param entity the last entity of the page
+     * @param attributes the ordering attributes
+     * @return the token
+     */
+    public String getKeysetToken(T entity, List<SingularAttribute<T, ?>> attributes) {
+        List<Object> values = new ArrayList<Object>(attributes.size());
+        for (SingularAttribute<T, ?> attribute : attributes) {
+            Member member = attribute.getJavaMember();
+            try {
+                if (member instanceof Field) {
+                    Field field = (Field)member;
+                    field.setAccessible(true);
+                    values.add(field.get(entity));
+                } else {
+                    values.add(((Method)member).invoke(entity));
+                }
+            } catch (Exception ex) {
+                throw new IllegalStateException("Value of " + attribute.getName() + " is not available", ex);
+            }
+        }
+        return KeysetToken.encode(values);
+    }
+    
+    private static Class<?> getWrapperClass(Class<?> cls) {
+        if (!cls.isPrimitive()) {
+            return cls;
+        } else if (cls == int.class) {
+            return Integer.class;
+        } else if (cls == long.class) {
+            return Long.class;
+        } else if (cls == short.class) {
+            return Short.class;
+        } else if (cls == byte.class) {
+            return Byte.class;
+        } else if (cls == double.class) {
+            return Double.class;
+        } else if (cls == float.class) {
+            return Float.class;
+        } else if (cls == boolean.class) {
+            return Boolean.class;
+        } else {
+            return Character.class;
+        }
+    }
+    
     public TypedQuery<E> getArrayTypedQuery(List<SingularAttribute<T, ?>> attributes) {
         CriteriaQuery<E> cQuery = selectArraySelections(toSelectionsArray(toSelectionsList(attributes, false)));
         return getTypedQuery(cQuery);
@@ -155,6 +326,6 @@ public class JPACriteriaQueryVisitor<T, E> extends AbstractJPATypedQueryVisitor<
     }
     
     private TypedQuery<E> getTypedQuery(CriteriaQuery<E> theCriteriaQuery) {
-        return super.getEntityManager().createQuery(theCriteriaQuery);
+        return bindParameters(super.getEntityManager().createQuery(theCriteriaQuery));
     }
 }
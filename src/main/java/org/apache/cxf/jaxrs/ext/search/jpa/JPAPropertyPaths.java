@@ -0,0 +1,206 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.ext.search.jpa;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.PluralAttribute;
+import javax.persistence.metamodel.SingularAttribute;
+import javax.persistence.metamodel.Type;
+
+/**
+ * Resolves the (possibly nested) property paths of the entity once from the JPA metamodel:
+ * the path segments, the segments representing the collections and the type of the 
+ * last attribute are cached so that the JPA visitors do not introspect the parsed values 
+ * to discover them. The values of the nested properties are read from the parsed values 
+ * with the Java members of the metamodel attributes, the fields or the getters, which are 
+ * resolved with the path.
+ * <p>
+ * The paths are thread-safe and can be shared between the visitors querying the same
+ * entity with the entity managers created by the same factory.
+ * </p>
+ */
+public class JPAPropertyPaths<T> {
+    private static final PropertyPath UNRESOLVED = new PropertyPath(null, null, null, null);
+    
+    private final Metamodel metamodel;
+    private final Class<T> entityClass;
+    private final ConcurrentMap<String, PropertyPath> paths = new ConcurrentHashMap<String, PropertyPath>();
+    
+    public JPAPropertyPaths(Metamodel metamodel, Class<T> entityClass) {
+        this.metamodel = metamodel;
+        this.entityClass = entityClass;
+    }
+    
+    public Class<T> getEntityClass() {
+        return entityClass;
+    }
+    
+    /**
+     * Returns the resolved path
+     * @param property the property name, such as "address.street"
+     * @return the path or null if the metamodel can not resolve it
+     */
+    public PropertyPath getPath(String property) {
+        PropertyPath path = paths.get(property);
+        if (path == null) {
+            path = resolve(property);
+            paths.putIfAbsent(property, path == null ? UNRESOLVED : path);
+        }
+        return path == UNRESOLVED ? null : path;
+    }
+    
+    private PropertyPath resolve(String property) {
+        String[] names = property.split("\\.");
+        boolean[] collections = new boolean[names.length];
+        Member[] members = new Member[names.length];
+        ManagedType<?> type;
+        try {
+            type = metamodel.managedType(entityClass);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+        Class<?> javaType = null;
+        for (int i = 0; i < names.length; i++) {
+            if (type == null) {
+                return null;
+            }
+            Attribute<?, ?> attr;
+            try {
+                attr = type.getAttribute(names[i]);
+            } catch (IllegalArgumentException ex) {
+                return null;
+            }
+            if (attr == null) {
+                return null;
+            }
+            members[i] = attr.getJavaMember();
+            if (!(members[i] instanceof Field || members[i] instanceof Method)) {
+                return null;
+            }
+            Type<?> attrType;
+            if (attr.isCollection()) {
+                if (!(attr instanceof PluralAttribute)) {
+                    return null;
+                }
+                collections[i] = true;
+                attrType = ((PluralAttribute<?, ?, ?>)attr).getElementType();
+            } else if (attr instanceof SingularAttribute) {
+                attrType = ((SingularAttribute<?, ?>)attr).getType();
+            } else {
+                return null;
+            }
+            javaType = attrType.getJavaType();
+            type = attrType instanceof ManagedType ? (ManagedType<?>)attrType : null;
+        }
+        for (Member member : members) {
+            try {
+                ((AccessibleObject)member).setAccessible(true);
+            } catch (SecurityException ex) {
+                // the public members are still readable
+            }
+        }
+        return new PropertyPath(names, collections, members, javaType);
+    }
+    
+    /**
+     * Returns the value of the last property from the parsed value of the first one
+     * @param path the path
+     * @param value the parsed value, as returned by the statement
+     * @return the value of the last property
+     */
+    public Object getValue(PropertyPath path, Object value) {
+        Member[] members = path.members;
+        for (int i = 1; i < members.length && value != null; i++) {
+            value = firstElement(value);
+            if (value != null) {
+                try {
+                    Member member = members[i];
+                    value = member instanceof Field 
+                        ? ((Field)member).get(value) : ((Method)member).invoke(value);
+                } catch (Exception ex) {
+                    throw new RuntimeException(ex);
+                }
+            }
+        }
+        return firstElement(value);
+    }
+    
+    private static Object firstElement(Object value) {
+        if (value instanceof Collection) {
+            Collection<?> coll = (Collection<?>)value;
+            return coll.isEmpty() ? null : coll.iterator().next();
+        }
+        return value;
+    }
+    
+    /**
+     * Property path resolved from the metamodel
+     */
+    public static final class PropertyPath {
+        private final String[] names;
+        private final boolean[] collections;
+        private final Member[] members;
+        private final Class<?> javaType;
+        
+        PropertyPath(String[] names, boolean[] collections, Member[] members, Class<?> javaType) {
+            this.names = names;
+            this.collections = collections;
+            this.members = members;
+            this.javaType = javaType;
+        }
+        
+        /**
+         * Returns the number of the path segments
+         */
+        public int size() {
+            return names.length;
+        }
+        
+        /**
+         * Returns the path segment
+         */
+        public String getName(int index) {
+            return names[index];
+        }
+        
+        /**
+         * Checks if the path segment is a collection attribute
+         */
+        public boolean isCollection(int index) {
+            return collections[index];
+        }
+        
+        /**
+         * Returns the Java type of the last attribute, the element type if it is a collection
+         */
+        public Class<?> getJavaType() {
+            return javaType;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.ext.search.jpa;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.ParameterExpression;
+
+/**
+ * Parameterized criteria query cached per condition shape by the JPA visitors.
+ * The query must not be modified once it has been cached.
+ */
+public final class JPAQueryTemplate<T1> {
+    private final CriteriaQuery<T1> criteriaQuery;
+    private final List<ParameterExpression<?>> parameters;
+    
+    JPAQueryTemplate(CriteriaQuery<T1> criteriaQuery, List<ParameterExpression<?>> parameters) {
+        this.criteriaQuery = criteriaQuery;
+        this.parameters = Collections.unmodifiableList(new ArrayList<ParameterExpression<?>>(parameters));
+    }
+    
+    public CriteriaQuery<T1> getCriteriaQuery() {
+        return criteriaQuery;
+    }
+    
+    /**
+     * Returns the query parameters in the order of the condition statements 
+     */
+    public List<ParameterExpression<?>> getParameters() {
+        return parameters;
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.ext.search.jpa;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import javax.persistence.metamodel.SingularAttribute;
+
+/**
+ * Iterates over the entities matching the condition visited by the JPA visitor, 
+ * the entities are loaded in the batches, each batch query continues after the last entity
+ * of the previous batch. The persistence context is cleared before the next batch is loaded 
+ * by default, so the entities of the previous batches are detached and can be garbage collected. 
+ * The visitor must not visit another condition while the iterator is used.
+ * <pre>
+ * final Iterator&lt;Book&gt; books = visitor.iterate(Collections.singletonList(Book_.id), 100);
+ * return new StreamingOutput() {
+ *     public void write(OutputStream os) throws IOException {
+ *         while (books.hasNext()) {
+ *             writeBook(os, books.next());
+ *         }
+ *     }
+ * };
+ * </pre>
+ */
+public final class JPAResultIterator<T> implements Iterator<T> {
+    private final AbstractJPATypedQueryVisitor<T, ?, ?> visitor;
+    private final List<SingularAttribute<T, ?>> attributes;
+    private final int batchSize;
+    private boolean clearPersistenceContext = true;
+    private List<T> batch;
+    private int index;
+    private String token;
+    
+    JPAResultIterator(AbstractJPATypedQueryVisitor<T, ?, ?> visitor, 
+                      List<SingularAttribute<T, ?>> attributes, 
+                      int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.visitor = visitor;
+        this.attributes = attributes;
+        this.batchSize = batchSize;
+    }
+    
+    public boolean isClearPersistenceContext() {
+        return clearPersistenceContext;
+    }
+
+    /**
+     * Sets if the persistence context is cleared before the next batch is loaded, 
+     * the context has to be kept if the entities of the previous batches are still used 
+     * or if the entity manager manages other entities 
+     * @param clearPersistenceContext false if the context is not cleared
+     */
+    public void setClearPersistenceContext(boolean clearPersistenceContext) {
+        this.clearPersistenceContext = clearPersistenceContext;
+    }
+    
+    public boolean hasNext() {
+        if (batch != null && index < batch.size()) {
+            return true;
+        }
+        if (batch != null && batch.size() < batchSize) {
+            return false;
+        }
+        loadBatch();
+        return index < batch.size();
+    }
+
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return batch.get(index++);
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+    
+    private void loadBatch() {
+        if (batch != null && clearPersistenceContext) {
+            visitor.getEntityManager().clear();
+        }
+        JPACriteriaQueryVisitor<T, T> batchVisitor = 
+            visitor.createCriteriaQueryVisitor(visitor.getEntityClass());
+        List<T> entities = 
+            batchVisitor.getKeysetTypedQuery(attributes, true, token, batchSize).getResultList();
+        if (!entities.isEmpty()) {
+            token = batchVisitor.getKeysetToken(entities.get(entities.size() - 1), attributes);
+        }
+        batch = entities.isEmpty() ? Collections.<T>emptyList() : entities;
+        index = 0;
+    }
+}
@@ -25,6 +25,8 @@ import java.util.Map;
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
 
+import org.apache.cxf.jaxrs.ext.search.visitor.QueryTemplateCache;
+
 public class JPATypedQueryVisitor<T> extends AbstractJPATypedQueryVisitor<T, T, TypedQuery<T>> {
 
     public JPATypedQueryVisitor(EntityManager em, Class<T> tClass) {
@@ -57,5 +59,10 @@ public class JPATypedQueryVisitor<T> extends AbstractJPATypedQueryVisitor<T, T,
     public TypedQuery<T> getQuery() {
         return getTypedQuery();
     }
+    
+    @Override
+    public void setTemplateCache(QueryTemplateCache<JPAQueryTemplate<T>> templateCache) {
+        super.setTemplateCache(templateCache);
+    }
         
 }
@@ -0,0 +1,212 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.ext.search.lucene;
+
+import java.beans.Introspector;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.apache.cxf.jaxrs.ext.search.Beanspector;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoubleDocValuesField;
+import org.apache.lucene.document.DoubleField;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FloatDocValuesField;
+import org.apache.lucene.document.FloatField;
+import org.apache.lucene.document.IntDocValuesField;
+import org.apache.lucene.document.IntField;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.document.PackedLongDocValuesField;
+import org.apache.lucene.document.SortedBytesDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * Converts the beans into the documents matched by the queries of {@link LuceneQueryVisitor}. 
+ * The bean properties are introspected with {@link Beanspector} like the parsers do, every property 
+ * value is indexed with the field the visitor matches the property against:
+ * <ul>
+ * <li>the numbers are indexed as the numeric fields of the type the visitor uses for the range queries,
+ * the types set by {@link LuceneQueryVisitor#setPrimitiveFieldTypeMap} are respected</li>
+ * <li>the dates are indexed as the long fields rounded to the date resolution of the visitor</li>
+ * <li>the strings, booleans, enums and characters are indexed as the not analyzed keyword fields</li>
+ * <li>the values of the collections and arrays are indexed as the values of the multi-valued fields</li>
+ * <li>the properties of the nested beans are indexed with the dotted field names, for example 
+ * "address.city"</li>
+ * </ul>
+ * The single values also get the doc values, so the results can be sorted with 
+ * {@link org.apache.lucene.search.SortField#setUseIndexValues(boolean)}, and the values are stored 
+ * so that {@link LuceneSearchExecutor} can map the documents back to the beans. 
+ * The contents field set on the visitor is not populated.
+ * <p>
+ * The indexer can be shared by the threads if the visitor is.
+ */
+public class LuceneBeanIndexer<T> {
+    private final LuceneQueryVisitor<T> visitor;
+    private boolean stored = true;
+    private boolean docValues = true;
+    
+    public LuceneBeanIndexer(LuceneQueryVisitor<T> visitor) {
+        this.visitor = visitor;
+    }
+    
+    public boolean isStored() {
+        return stored;
+    }
+    
+    /**
+     * Sets if the values are stored
+     * @param stored false if the values are only indexed 
+     */
+    public void setStored(boolean stored) {
+        this.stored = stored;
+    }
+    
+    public boolean isDocValues() {
+        return docValues;
+    }
+    
+    /**
+     * Sets if the single values are also added as the doc values for sorting
+     * @param docValues false if the doc values are not needed 
+     */
+    public void setDocValues(boolean docValues) {
+        this.docValues = docValues;
+    }
+    
+    /**
+     * Adds the documents of the beans to the index
+     * @param writer the index writer
+     * @param beans the beans
+     */
+    public void index(IndexWriter writer, Collection<? extends T> beans) throws IOException {
+        for (T bean : beans) {
+            writer.addDocument(toDocument(bean));
+        }
+    }
+    
+    /**
+     * Converts the bean into the document
+     * @param bean the bean
+     * @return the document
+     */
+    public Document toDocument(T bean) {
+        Document doc = new Document();
+        Set<Object> beans = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        beans.add(bean);
+        addBean(doc, "", bean, false, beans);
+        return doc;
+    }
+    
+    private void addBean(Document doc, String prefix, Object bean, boolean multiValued, Set<Object> beans) {
+        Beanspector<Object> beanspector = new Beanspector<Object>(bean);
+        for (String name : beanspector.getGettersNames()) {
+            Method getter = beanspector.getGetter(name);
+            if (getter.getDeclaringClass() == Object.class) {
+                continue;
+            }
+            Object value;
+            try {
+                value = beanspector.getValue(getter);
+            } catch (Throwable ex) {
+                throw new IllegalStateException("Property " + name + " can not be read", ex);
+            }
+            addValue(doc, prefix + getPropertyName(getter), value, multiValued, beans);
+        }
+    }
+    
+    private void addValue(Document doc, String property, Object value, boolean multiValued, 
+                          Set<Object> beans) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Collection) {
+            for (Object item : (Collection<?>)value) {
+                addValue(doc, property, item, true, beans);
+            }
+        } else if (value.getClass().isArray()) {
+            // the primitive arrays are read with java.lang.reflect.Array too
+            int length = Array.getLength(value);
+            for (int i = 0; i < length; i++) {
+                addValue(doc, property, Array.get(value, i), true, beans);
+            }
+        } else if (isIndexedValue(value)) {
+            addField(doc, visitor.getFieldName(property), value, multiValued);
+        } else if (!value.getClass().getName().startsWith("java.") && beans.add(value)) {
+            addBean(doc, property + ".", value, multiValued, beans);
+            beans.remove(value);
+        }
+    }
+    
+    private static boolean isIndexedValue(Object value) {
+        return value instanceof String || value instanceof Number || value instanceof Date 
+            || value instanceof Boolean || value instanceof Character || value instanceof Enum;
+    }
+    
+    private void addField(Document doc, String name, Object value, boolean multiValued) {
+        Field.Store store = stored ? Field.Store.YES : Field.Store.NO;
+        boolean addDocValues = docValues && !multiValued;
+        
+        Class<?> cls = visitor.getFieldClass(name, value.getClass());
+        Class<?> numericType = LuceneQueryVisitor.getNumericFieldType(cls);
+        if (numericType == null) {
+            String str = value.toString();
+            doc.add(new StringField(name, str, store));
+            if (addDocValues) {
+                doc.add(new SortedBytesDocValuesField(name, new BytesRef(str)));
+            }
+            return;
+        }
+        
+        Number number = LuceneQueryVisitor.toNumericValue(value, numericType, visitor.getDateResolution());
+        if (numericType == Long.class || numericType == Date.class) {
+            doc.add(new LongField(name, number.longValue(), store));
+            if (addDocValues) {
+                doc.add(new PackedLongDocValuesField(name, number.longValue()));
+            }
+        } else if (numericType == Double.class) {
+            doc.add(new DoubleField(name, number.doubleValue(), store));
+            if (addDocValues) {
+                doc.add(new DoubleDocValuesField(name, number.doubleValue()));
+            }
+        } else if (numericType == Float.class) {
+            doc.add(new FloatField(name, number.floatValue(), store));
+            if (addDocValues) {
+                doc.add(new FloatDocValuesField(name, number.floatValue()));
+            }
+        } else {
+            doc.add(new IntField(name, number.intValue(), store));
+            if (addDocValues) {
+                doc.add(new IntDocValuesField(name, number.intValue()));
+            }
+        }
+    }
+    
+    private static String getPropertyName(Method getter) {
+        String name = getter.getName();
+        return Introspector.decapitalize(name.substring(name.startsWith("is") ? 2 : 3));
+    }
+}
@@ -18,34 +18,73 @@
  */
 package org.apache.cxf.jaxrs.ext.search.lucene;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Stack;
+import java.util.Set;
+import java.util.TreeSet;
 
 import org.apache.cxf.jaxrs.ext.search.ConditionType;
 import org.apache.cxf.jaxrs.ext.search.PrimitiveStatement;
+import org.apache.cxf.jaxrs.ext.search.SearchBean;
 import org.apache.cxf.jaxrs.ext.search.SearchCondition;
+import org.apache.cxf.jaxrs.ext.search.SearchParseException;
+import org.apache.cxf.jaxrs.ext.search.SearchUtils;
 import org.apache.cxf.jaxrs.ext.search.visitor.AbstractSearchConditionVisitor;
+import org.apache.cxf.jaxrs.ext.search.visitor.LocalVisitorState;
+import org.apache.cxf.jaxrs.ext.search.visitor.VisitorState;
 import org.apache.lucene.document.DateTools;
 import org.apache.lucene.document.DateTools.Resolution;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.search.AutomatonQuery;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.MultiTermQuery;
 import org.apache.lucene.search.NumericRangeQuery;
 import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.PrefixQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TermRangeQuery;
 import org.apache.lucene.search.WildcardQuery;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.automaton.BasicAutomata;
 
+/**
+ * Translates the condition into the Lucene query. The numeric values are matched with 
+ * the numeric range queries of the type set by {@link #setPrimitiveFieldTypeMap(Map)} or 
+ * of the value type, the dates are matched as the long values rounded to the 
+ * {@link #setDateResolution(Resolution) date resolution}. The string properties of the typed beans 
+ * are matched with the term range queries comparing the terms lexicographically, while the values 
+ * of {@link SearchBean}, which are all strings, are compared as Integer values.
+ * The values with the trailing wildcard only are matched with the prefix queries and the alternative 
+ * terms of the same field are matched with the single query. The query does not score the matches 
+ * unless {@link #setScoring(boolean)} is set. The negative conditions are excluded from the query 
+ * of the parent AND condition, or, if there is no such query, from the query matching all the documents.
+ * The booleans, enums and characters are matched as the keyword terms. {@link LuceneBeanIndexer} indexes
+ * the beans the way their properties are matched.
+ * <p>
+ * The visitor only reads its configuration while translating the conditions, once configured 
+ * it can be kept for the lifetime of the application and shared by the threads which call 
+ * {@link #toQuery(SearchCondition)}. 
+ */
 public class LuceneQueryVisitor<T> extends AbstractSearchConditionVisitor<T, Query> {
 
     //private Analyzer analyzer;
     private String contentsFieldName;
     private Map<String, String> contentsFieldMap;
-    private Stack<List<Query>> queryStack = new Stack<List<Query>>();
+    private VisitorState<Query> queryState = new LocalVisitorState<Query>();
+    private Resolution dateResolution = Resolution.MILLISECOND;
+    private boolean scoring;
     public LuceneQueryVisitor() {
         this(Collections.<String, String>emptyMap());
     }
@@ -65,47 +104,163 @@ public class LuceneQueryVisitor<T> extends AbstractSearchConditionVisitor<T, Que
     public LuceneQueryVisitor(Map<String, String> fieldsMap, String contentsFieldName) {
         super(fieldsMap);
         this.contentsFieldName = contentsFieldName;
-        queryStack.push(new ArrayList<Query>());
     }
     
     public void setContentsFieldMap(Map<String, String> map) {
-        this.contentsFieldMap = map;
+        this.contentsFieldMap = 
+            map == null ? null : Collections.unmodifiableMap(new HashMap<String, String>(map));
+    }
+    
+    public Resolution getDateResolution() {
+        return dateResolution;
+    }
+    
+    /**
+     * Sets the resolution of the date fields, the dates are expected to be indexed 
+     * as the long fields with the values rounded by {@link DateTools#round(long, Resolution)}.
+     * The date values are compared at the millisecond resolution by default. 
+     * @param dateResolution the resolution
+     */
+    public void setDateResolution(Resolution dateResolution) {
+        this.dateResolution = dateResolution;
+    }
+    
+    public boolean isScoring() {
+        return scoring;
+    }
+    
+    /**
+     * Sets if the matches are scored, the query is wrapped into ConstantScoreQuery by default 
+     * because the search conditions are the filters which do not need the relevance
+     * @param scoring true if the query is not wrapped
+     */
+    public void setScoring(boolean scoring) {
+        this.scoring = scoring;
     }
     
     public void visit(SearchCondition<T> sc) {
+        queryState.set(toQuery(sc));
+    }
+    
+    /**
+     * Translates the condition into the query without modifying the visitor, so the configured visitor
+     * can be shared by the threads, unlike {@link #visit(SearchCondition)} and {@link #getQuery()} 
+     * which need the ThreadLocalVisitorState to be set in this case 
+     * @param sc the condition
+     * @return the query
+     */
+    public Query toQuery(SearchCondition<T> sc) {
+        Query query = buildQuery(sc);
+        if (query == null) {
+            return null;
+        }
+        query = toMatchingQuery(query);
+        return scoring ? query : new ConstantScoreQuery(query);
+    }
+    
+    private Query buildQuery(SearchCondition<T> sc) {
         PrimitiveStatement statement = sc.getStatement();
         if (statement != null) {
-            if (statement.getProperty() != null) {
-                queryStack.peek().add(buildSimpleQuery(sc.getConditionType(), 
-                                         statement.getProperty(), 
-                                         statement.getValue()));
+            if (statement.getProperty() == null) {
+                return null;
             }
+            return buildSimpleQuery(sc.getConditionType(), statement, 
+                                    !(sc.getCondition() instanceof SearchBean));
         } else {
-            queryStack.push(new ArrayList<Query>());
-            for (SearchCondition<T> condition : sc.getSearchConditions()) {
-                condition.accept(this);
+            List<SearchCondition<T>> conditions = sc.getSearchConditions();
+            List<Query> queries = new ArrayList<Query>(conditions.size());
+            for (SearchCondition<T> condition : conditions) {
+                Query query = buildQuery(condition);
+                if (query != null) {
+                    queries.add(query);
+                }
             }
             boolean orCondition = sc.getConditionType() == ConditionType.OR;
-            List<Query> queries = queryStack.pop();
-            queryStack.peek().add(createCompositeQuery(queries, orCondition));
+            if (orCondition) {
+                queries = collapseTermQueries(queries);
+            }
+            return createCompositeQuery(queries, orCondition);
         }    
     }
 
+    /**
+     * Replaces the term queries on the same field with the single query matching any of the terms, 
+     * it is not limited by the maximum number of the boolean clauses and does not score the matches
+     */
+    private static List<Query> collapseTermQueries(List<Query> queries) {
+        Map<String, Set<BytesRef>> fieldTerms = new LinkedHashMap<String, Set<BytesRef>>();
+        for (Query query : queries) {
+            if (query instanceof TermQuery) {
+                Term term = ((TermQuery)query).getTerm();
+                Set<BytesRef> terms = fieldTerms.get(term.field());
+                if (terms == null) {
+                    terms = new TreeSet<BytesRef>();
+                    fieldTerms.put(term.field(), terms);
+                }
+                terms.add(term.bytes());
+            }
+        }
+        if (fieldTerms.size() == queries.size()) {
+            // every field has a single term query
+            return queries;
+        }
+        List<Query> collapsed = new ArrayList<Query>(queries.size());
+        for (Query query : queries) {
+            if (!(query instanceof TermQuery)) {
+                collapsed.add(query);
+                continue;
+            }
+            String field = ((TermQuery)query).getTerm().field();
+            Set<BytesRef> terms = fieldTerms.remove(field);
+            if (terms == null) {
+                // already collapsed
+                continue;
+            } else if (terms.size() == 1) {
+                collapsed.add(query);
+            } else {
+                AutomatonQuery termsQuery = 
+                    new AutomatonQuery(new Term(field), BasicAutomata.makeStringUnion(terms));
+                termsQuery.setRewriteMethod(MultiTermQuery.CONSTANT_SCORE_FILTER_REWRITE);
+                collapsed.add(termsQuery);
+            }
+        }
+        return collapsed;
+    }
+    
     //public void setAnalyzer(Analyzer a) {
     //    this.analyzer = a;
     //}
     
     public Query getQuery() {
-        List<Query> queries = queryStack.peek();
-        return queries.isEmpty() ? null : queries.get(0);
+        return queryState.get();
+    }
+    
+    /**
+     * Sets the state keeping the query created by {@link #visit(SearchCondition)}, 
+     * ThreadLocalVisitorState has to be used if the visitor is shared between the threads
+     * @param state the query state
+     */
+    public void setVisitorState(VisitorState<Query> state) {
+        this.queryState = state;
     }
     
-    private Query buildSimpleQuery(ConditionType ct, String name, Object value) {
-        name = super.getRealPropertyName(name);
+    private Query buildSimpleQuery(ConditionType ct, PrimitiveStatement statement, boolean termRanges) {
+        String name = super.getRealPropertyName(statement.getProperty());
+        Object value = statement.getValue();
         validatePropertyValue(name, value);
         
-        Class<?> clazz = getPrimitiveFieldClass(name, value.getClass());
-        
+        // the values of the nested beans and of the collections are matched against the field of 
+        // the property path, every value of the multi-valued field is indexed with the field name
+        ClassValue cv = 
+            getPrimitiveFieldClass(statement, name, value.getClass(), statement.getValueType(), value);
+        if (cv.getCollectionCheckInfo() != null) {
+            throw new SearchParseException("Collection checks are not supported");
+        }
+        Class<?> clazz = cv.getCls();
+        value = cv.getValue();
+        if (value == null) {
+            return null;
+        }
         
         Query query = null;
         switch (ct) {
@@ -113,22 +268,19 @@ public class LuceneQueryVisitor<T> extends AbstractSearchConditionVisitor<T, Que
             query = createEqualsQuery(clazz, name, value);
             break;
         case NOT_EQUALS:
-            BooleanQuery booleanQuery = new BooleanQuery();
-            booleanQuery.add(createEqualsQuery(clazz, name, value),
-                             BooleanClause.Occur.MUST_NOT);
-            query = booleanQuery;
+            query = createNegativeQuery(createEqualsQuery(clazz, name, value));
             break;
         case GREATER_THAN:
-            query = createRangeQuery(clazz, name, value, ct);
+            query = createRangeQuery(clazz, name, value, ct, termRanges);
             break;
         case GREATER_OR_EQUALS:
-            query = createRangeQuery(clazz, name, value, ct);
+            query = createRangeQuery(clazz, name, value, ct, termRanges);
             break;
         case LESS_THAN:
-            query = createRangeQuery(clazz, name, value, ct);
+            query = createRangeQuery(clazz, name, value, ct, termRanges);
             break;
         case LESS_OR_EQUALS:
-            query = createRangeQuery(clazz, name, value, ct);
+            query = createRangeQuery(clazz, name, value, ct, termRanges);
             break;
         default: 
             break;
@@ -149,7 +301,7 @@ public class LuceneQueryVisitor<T> extends AbstractSearchConditionVisitor<T, Que
                 if (!isWildCard) {
                     query = new TermQuery(term);
                 } else {
-                    query = new WildcardQuery(term);
+                    query = createWildcardQuery(term);
                 } 
             } else if (!isWildCard) {
                 PhraseQuery pquery = new PhraseQuery();
@@ -160,16 +312,33 @@ public class LuceneQueryVisitor<T> extends AbstractSearchConditionVisitor<T, Que
                 BooleanQuery pquery = new BooleanQuery();
                 pquery.add(new TermQuery(new Term(theContentsFieldName, name)),
                            BooleanClause.Occur.MUST);
-                pquery.add(new WildcardQuery(new Term(theContentsFieldName, strValue)),
+                pquery.add(createWildcardQuery(new Term(theContentsFieldName, strValue)),
                            BooleanClause.Occur.MUST);
                 query = pquery;                
             }
+        } else if (getNumericFieldType(cls) != null) {
+            query = createRangeQuery(cls, name, value, ConditionType.EQUALS, false);
         } else {
-            query = createRangeQuery(cls, name, value, ConditionType.EQUALS);
+            // booleans, enums and characters are indexed as the keyword terms
+            query = new TermQuery(new Term(name, value.toString()));
         }
         return query;
     }
     
+    /**
+     * Returns the prefix query, which does not need to match every term against the pattern,
+     * if the only wildcard is the trailing one  
+     */
+    private static Query createWildcardQuery(Term term) {
+        String text = term.text();
+        int last = text.length() - 1;
+        if (last >= 0 && text.indexOf('*') == last 
+            && text.indexOf('?') == -1 && text.indexOf('\\') == -1) {
+            return new PrefixQuery(new Term(term.field(), text.substring(0, last)));
+        }
+        return new WildcardQuery(term);
+    }
+    
     private String getContentsFieldName(String name) {
         String fieldName = null;
         if (contentsFieldMap != null) {
@@ -182,54 +351,231 @@ public class LuceneQueryVisitor<T> extends AbstractSearchConditionVisitor<T, Que
     }
     
     private Query createRangeQuery(Class<?> cls, String name, Object value,
-                                   ConditionType type) {
-        if (String.class.isAssignableFrom(cls) || Number.class.isAssignableFrom(cls)) {
-            // If needed, long and double can be supported too
-            // Also, perhaps Strings may optionally be compared with string comparators 
-            Integer intValue = Integer.valueOf(value.toString());
-            Integer min = type == ConditionType.LESS_THAN || type == ConditionType.LESS_OR_EQUALS ? null : intValue;
-            Integer max = type == ConditionType.GREATER_THAN || type == ConditionType.GREATER_OR_EQUALS 
-                ? null : intValue;
-            boolean minInclusive = 
-                type == ConditionType.GREATER_OR_EQUALS || type == ConditionType.EQUALS;
-            boolean maxInclusive =
-                type == ConditionType.LESS_OR_EQUALS || type == ConditionType.EQUALS;
-            Query query = NumericRangeQuery.newIntRange(name, min, max, 
-                                                        minInclusive, maxInclusive);
-            return query;
-        } else if (Date.class.isAssignableFrom(cls)) {
-            // This code has not been tested - most likely needs to be fixed  
-            // Resolution should be configurable ?
-            String luceneDateValue = DateTools.dateToString((Date)value, Resolution.MILLISECOND);
-            String expression = null;
-            if (type == ConditionType.LESS_THAN) {
-                // what is the base date here ?
-                expression = "[" + ""
-                    + " TO " + luceneDateValue + "]";    
-            } else {
-                expression = "[" + luceneDateValue + " TO " 
-                    + DateTools.dateToString(new Date(), Resolution.MILLISECOND) + "]";
-            }
-            return parseExpression(name, expression);
+                                   ConditionType type, boolean termRange) {
+        boolean minInclusive = 
+            type == ConditionType.GREATER_OR_EQUALS || type == ConditionType.EQUALS;
+        boolean maxInclusive =
+            type == ConditionType.LESS_OR_EQUALS || type == ConditionType.EQUALS;
+        boolean noMin = type == ConditionType.LESS_THAN || type == ConditionType.LESS_OR_EQUALS;
+        boolean noMax = type == ConditionType.GREATER_THAN || type == ConditionType.GREATER_OR_EQUALS;
+        
+        if (termRange && String.class == cls) {
+            String str = value.toString();
+            return TermRangeQuery.newStringRange(name, noMin ? null : str, noMax ? null : str, 
+                                                 minInclusive, maxInclusive);
+        }
+        // the search bean strings and the other numbers are compared as integers 
+        Class<?> numericType = 
+            String.class.isAssignableFrom(cls) ? Integer.class : getNumericFieldType(cls);
+        if (numericType == null) {
+            return null;
+        }
+        Number number = toNumericValue(value, numericType, dateResolution);
+        Number min = noMin ? null : number;
+        Number max = noMax ? null : number;
+        if (numericType == Long.class || numericType == Date.class) {
+            return NumericRangeQuery.newLongRange(name, (Long)min, (Long)max, minInclusive, maxInclusive);
+        } else if (numericType == Double.class) {
+            return NumericRangeQuery.newDoubleRange(name, (Double)min, (Double)max, 
+                                                    minInclusive, maxInclusive);
+        } else if (numericType == Float.class) {
+            return NumericRangeQuery.newFloatRange(name, (Float)min, (Float)max, minInclusive, maxInclusive);
+        } else {
+            return NumericRangeQuery.newIntRange(name, (Integer)min, (Integer)max, 
+                                                 minInclusive, maxInclusive);
+        }
+    }
+    
+    /**
+     * Returns the type of the numeric field the values of the class are matched with and indexed as 
+     * by {@link LuceneBeanIndexer}
+     * @param cls the value class
+     * @return Date, Long, Double, Float or Integer class, null if the values are not numeric
+     */
+    static Class<?> getNumericFieldType(Class<?> cls) {
+        cls = getWrapperClass(cls);
+        if (Date.class.isAssignableFrom(cls)) {
+            return Date.class;
+        } else if (Long.class == cls || BigInteger.class == cls) {
+            return Long.class;
+        } else if (Double.class == cls || BigDecimal.class == cls) {
+            return Double.class;
+        } else if (Float.class == cls) {
+            return Float.class;
+        } else if (Number.class.isAssignableFrom(cls)) {
+            return Integer.class;
         } else {
             return null;
         }
     }
     
+    /**
+     * Converts the value into the value of the numeric field, the dates are converted into the numbers 
+     * of milliseconds rounded to the resolution
+     * @param value the number, the date or the string value
+     * @param numericType the type returned by {@link #getNumericFieldType(Class)}
+     * @param resolution the date resolution
+     * @return Long, Double, Float or Integer value
+     */
+    static Number toNumericValue(Object value, Class<?> numericType, Resolution resolution) {
+        if (numericType == Date.class) {
+            return DateTools.round(toDate(value).getTime(), resolution);
+        } else if (numericType == Long.class) {
+            return value instanceof Number ? ((Number)value).longValue() : Long.valueOf(value.toString());
+        } else if (numericType == Double.class) {
+            return value instanceof Number 
+                ? ((Number)value).doubleValue() : Double.valueOf(value.toString());
+        } else if (numericType == Float.class) {
+            return value instanceof Number 
+                ? ((Number)value).floatValue() : Float.valueOf(value.toString());
+        } else {
+            return value instanceof Number ? ((Number)value).intValue() : Integer.valueOf(value.toString());
+        }
+    }
+    
+    /**
+     * Returns the name of the field the property is matched against 
+     */
+    String getFieldName(String property) {
+        return getRealPropertyName(property);
+    }
+    
+    /**
+     * Returns the class the values of the field are matched as, 
+     * see {@link #setPrimitiveFieldTypeMap(Map)}
+     */
+    Class<?> getFieldClass(String fieldName, Class<?> valueClass) {
+        return getPrimitiveFieldClass(fieldName, valueClass);
+    }
+    
+    private static Date toDate(Object value) {
+        if (value instanceof Date) {
+            return (Date)value;
+        }
+        try {
+            return SearchUtils.getDateFormat(Collections.<String, String>emptyMap()).parse(value.toString());
+        } catch (ParseException ex) {
+            throw new SearchParseException("Can not parse " + value + " as date", ex);
+        }
+    }
+    
+    private static Class<?> getWrapperClass(Class<?> cls) {
+        if (cls == int.class) {
+            return Integer.class;
+        } else if (cls == long.class) {
+            return Long.class;
+        } else if (cls == double.class) {
+            return Double.class;
+        } else if (cls == float.class) {
+            return Float.class;
+        } else if (cls == short.class) {
+            return Short.class;
+        } else if (cls == byte.class) {
+            return Byte.class;
+        } else {
+            return cls;
+        }
+    }
+    
+    /**
+     * Combines the queries, the negative queries of AND conditions are added as the prohibited clauses
+     * to the query with the positive ones, AND conditions with the negative queries only and OR conditions 
+     * with the negative queries only (NOT a OR NOT b = NOT (a AND b)) are also negative, so that they can 
+     * be combined the same way by the parent condition, the negative queries of the other OR conditions 
+     * are converted into the matching ones
+     */
     private Query createCompositeQuery(List<Query> queries, boolean orCondition) {
-        
-        BooleanClause.Occur clause = orCondition 
-            ? BooleanClause.Occur.SHOULD : BooleanClause.Occur.MUST;
+        if (queries.size() == 1) {
+            return queries.get(0);
+        }
         
         BooleanQuery booleanQuery = new BooleanQuery();
+        if (!orCondition) {
+            for (Query query : queries) {
+                if (isNegativeQuery(query)) {
+                    for (BooleanClause clause : ((BooleanQuery)query).clauses()) {
+                        booleanQuery.add(clause.getQuery(), BooleanClause.Occur.MUST_NOT);
+                    }
+                } else {
+                    booleanQuery.add(query, BooleanClause.Occur.MUST);
+                }
+            }
+            return booleanQuery;
+        }
         
+        boolean negative = !queries.isEmpty();
         for (Query query : queries) {
-            booleanQuery.add(query, clause);
+            negative &= isNegativeQuery(query);
+        }
+        if (negative) {
+            BooleanQuery excluded = new BooleanQuery();
+            for (Query query : queries) {
+                excluded.add(getExcludedQuery((BooleanQuery)query), BooleanClause.Occur.MUST);
+            }
+            return createNegativeQuery(excluded);
+        }
+        for (Query query : queries) {
+            booleanQuery.add(toMatchingQuery(query), BooleanClause.Occur.SHOULD);
+        }
+        return booleanQuery;
+    }
+    
+    /**
+     * Returns the query with the prohibited clause only, Lucene does not match anything 
+     * for such a query unless it also has the required or optional clause 
+     */
+    private static BooleanQuery createNegativeQuery(Query excluded) {
+        BooleanQuery query = new BooleanQuery();
+        query.add(excluded, BooleanClause.Occur.MUST_NOT);
+        return query;
+    }
+    
+    private static boolean isNegativeQuery(Query query) {
+        if (!(query instanceof BooleanQuery) || ((BooleanQuery)query).clauses().isEmpty()) {
+            return false;
+        }
+        for (BooleanClause clause : ((BooleanQuery)query).clauses()) {
+            if (!clause.isProhibited()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Returns the query matching the documents excluded by the negative query
+     */
+    private static Query getExcludedQuery(BooleanQuery query) {
+        List<BooleanClause> clauses = query.clauses();
+        if (clauses.size() == 1) {
+            return clauses.get(0).getQuery();
+        }
+        BooleanQuery excluded = new BooleanQuery();
+        for (BooleanClause clause : clauses) {
+            excluded.add(clause.getQuery(), BooleanClause.Occur.SHOULD);
+        }
+        return excluded;
+    }
+    
+    /**
+     * Adds the clause matching all the documents to the negative query 
+     */
+    private static Query toMatchingQuery(Query query) {
+        if (!isNegativeQuery(query)) {
+            return query;
+        }
+        BooleanQuery booleanQuery = new BooleanQuery();
+        booleanQuery.add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST);
+        for (BooleanClause clause : ((BooleanQuery)query).clauses()) {
+            booleanQuery.add(clause);
         }
-        
         return booleanQuery;
     }
     
+    /**
+     * @deprecated not used, the date ranges are created as the numeric range queries
+     */
+    @Deprecated
     protected Query parseExpression(String fieldName, String expression) {
         //QueryParser parser = new QueryParser(Version.LUCENE_40, name, analyzer);
         // return parse.parse(expression);
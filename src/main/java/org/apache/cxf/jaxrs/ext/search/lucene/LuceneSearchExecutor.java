@@ -0,0 +1,456 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.ext.search.lucene;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.cxf.jaxrs.ext.search.Beanspector;
+import org.apache.cxf.jaxrs.ext.search.KeysetToken;
+import org.apache.cxf.jaxrs.ext.search.SearchBean;
+import org.apache.cxf.jaxrs.ext.search.SearchCondition;
+import org.apache.cxf.jaxrs.ext.search.SearchParseException;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.search.CachingWrapperFilter;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryWrapperFilter;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+
+/**
+ * Executes the conditions translated by {@link LuceneQueryVisitor} and maps the hits to the beans.
+ * The pages are loaded with {@link IndexSearcher#searchAfter}, the cursor returned with the page 
+ * refers to its last hit, so the next page does not collect the hits of the previous pages again.
+ * The cursor can only be used with the reader the page has been loaded from, the reader version 
+ * of DirectoryReader is checked.
+ * <p>
+ * If the visitor does not score the matches then the translated queries are used as the filters
+ * which are cached per query, CachingWrapperFilter keeps the matching documents of every segment
+ * of the reader, so the reopened readers only match the new segments.  
+ * <p>
+ * The stored fields are mapped to the bean properties of the same names, the values of the multi-valued 
+ * fields to the collection and array properties and the fields with the dotted names, such as 
+ * "address.city", to the properties of the nested beans. The nested beans in the collections can not be 
+ * restored because their values are not grouped by the bean in the document, such fields are ignored.
+ * The dates are restored from the stored numbers of milliseconds, so the dates stored rounded 
+ * to the date resolution of the visitor come back rounded.
+ * <p>
+ * The executor can be shared by the threads if the visitor is.
+ */
+public class LuceneSearchExecutor<T> {
+    public static final int DEFAULT_FILTER_CACHE_SIZE = 100;
+    
+    private final LuceneQueryVisitor<T> visitor;
+    private final Class<T> beanClass;
+    private final int filterCacheSize;
+    private final Map<Query, Filter> filters;
+    private final AtomicLong filterHits = new AtomicLong();
+    private final AtomicLong filterMisses = new AtomicLong();
+    
+    public LuceneSearchExecutor(LuceneQueryVisitor<T> visitor, Class<T> beanClass) {
+        this(visitor, beanClass, DEFAULT_FILTER_CACHE_SIZE);
+    }
+    
+    /**
+     * Creates the executor
+     * @param visitor the configured visitor
+     * @param beanClass the class of the beans the documents are mapped to 
+     * @param filterCacheSize maximum number of the cached filters 
+     */
+    public LuceneSearchExecutor(LuceneQueryVisitor<T> visitor, Class<T> beanClass, int filterCacheSize) {
+        if (filterCacheSize <= 0) {
+            throw new IllegalArgumentException("filterCacheSize must be positive");
+        }
+        this.visitor = visitor;
+        this.beanClass = beanClass;
+        this.filterCacheSize = filterCacheSize;
+        this.filters = new LinkedHashMap<Query, Filter>(16, 0.75f, true) {
+            private static final long serialVersionUID = -1453327826520547315L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Query, Filter> eldest) {
+                return size() > LuceneSearchExecutor.this.filterCacheSize;
+            }
+        };
+    }
+    
+    /**
+     * Returns the first page of the beans matching the condition
+     * @param searcher the searcher
+     * @param sc the condition
+     * @param pageSize the maximum number of the beans
+     * @return the page
+     */
+    public LuceneSearchPage<T> search(IndexSearcher searcher, SearchCondition<T> sc, int pageSize) 
+        throws IOException {
+        return search(searcher, sc, null, pageSize);
+    }
+    
+    /**
+     * Returns the page of the beans matching the condition
+     * @param searcher the searcher
+     * @param sc the condition
+     * @param cursor the cursor returned with the previous page or null for the first page 
+     * @param pageSize the maximum number of the beans
+     * @return the page
+     * @throws SearchParseException if the cursor is not valid or if the index has been 
+     *         changed since the previous page has been loaded 
+     */
+    public LuceneSearchPage<T> search(IndexSearcher searcher, SearchCondition<T> sc, 
+                                      String cursor, int pageSize) throws IOException {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        long version = getReaderVersion(searcher.getIndexReader());
+        ScoreDoc after = cursor == null ? null : fromCursor(cursor, version);
+        
+        Query query = visitor.toQuery(sc);
+        if (query == null) {
+            query = new MatchAllDocsQuery();
+        }
+        // one more hit is collected to find if there is the next page
+        TopDocs topDocs;
+        if (visitor.isScoring()) {
+            topDocs = searcher.searchAfter(after, query, pageSize + 1);
+        } else {
+            topDocs = searcher.searchAfter(after, new MatchAllDocsQuery(), getFilter(query), pageSize + 1);
+        }
+        
+        ScoreDoc[] hits = topDocs.scoreDocs;
+        int size = Math.min(hits.length, pageSize);
+        List<T> results = new ArrayList<T>(size);
+        for (int i = 0; i < size; i++) {
+            results.add(toBean(searcher.doc(hits[i].doc)));
+        }
+        String nextCursor = null;
+        if (hits.length > pageSize) {
+            ScoreDoc last = hits[pageSize - 1];
+            nextCursor = KeysetToken.encode(version, last.doc, last.score);
+        }
+        return new LuceneSearchPage<T>(results, topDocs.totalHits, nextCursor);
+    }
+    
+    private Filter getFilter(Query query) {
+        Filter filter;
+        synchronized (filters) {
+            filter = filters.get(query);
+            if (filter == null) {
+                filter = new CachingWrapperFilter(new QueryWrapperFilter(query));
+                filters.put(query, filter);
+                filterMisses.incrementAndGet();
+            } else {
+                filterHits.incrementAndGet();
+            }
+        }
+        return filter;
+    }
+    
+    public void clearFilterCache() {
+        synchronized (filters) {
+            filters.clear();
+        }
+    }
+    
+    public int getFilterCacheSize() {
+        synchronized (filters) {
+            return filters.size();
+        }
+    }
+    
+    public long getFilterCacheHitCount() {
+        return filterHits.get();
+    }
+    
+    public long getFilterCacheMissCount() {
+        return filterMisses.get();
+    }
+    
+    private static long getReaderVersion(IndexReader reader) {
+        return reader instanceof DirectoryReader ? ((DirectoryReader)reader).getVersion() : 0L;
+    }
+    
+    private static ScoreDoc fromCursor(String cursor, long version) {
+        List<Object> values = KeysetToken.decode(cursor);
+        if (values.size() != 3 || !(values.get(0) instanceof Long) 
+            || !(values.get(1) instanceof Integer) || !(values.get(2) instanceof Float)) {
+            throw new SearchParseException("Invalid cursor");
+        }
+        if (((Long)values.get(0)).longValue() != version) {
+            throw new SearchParseException("The index has been changed since the cursor has been created");
+        }
+        return new ScoreDoc((Integer)values.get(1), (Float)values.get(2));
+    }
+    
+    /**
+     * Maps the document to the bean, SearchBean gets every stored field as a string,
+     * the stored fields of the other beans are converted to the types of their properties
+     * @param doc the document with the stored fields
+     * @return the bean
+     */
+    @SuppressWarnings("unchecked")
+    protected T toBean(Document doc) {
+        if (SearchBean.class.isAssignableFrom(beanClass)) {
+            SearchBean bean = (SearchBean)newBean(beanClass);
+            for (IndexableField field : doc.getFields()) {
+                if (bean.get(field.name()) == null) {
+                    Object value = getFieldValue(field);
+                    bean.set(field.name(), value == null ? null : value.toString());
+                }
+            }
+            return (T)bean;
+        }
+        Map<String, List<IndexableField>> fields = new LinkedHashMap<String, List<IndexableField>>();
+        for (IndexableField field : doc.getFields()) {
+            addField(fields, field.name(), field);
+        }
+        return populate(newBean(beanClass), fields);
+    }
+    
+    private static void addField(Map<String, List<IndexableField>> fields, String name,
+                                 IndexableField field) {
+        List<IndexableField> values = fields.get(name);
+        if (values == null) {
+            values = new ArrayList<IndexableField>(1);
+            fields.put(name, values);
+        }
+        values.add(field);
+    }
+    
+    private static <B> B populate(B bean, Map<String, List<IndexableField>> fields) {
+        Beanspector<B> beanspector = new Beanspector<B>(bean);
+        Set<String> setters = beanspector.getSettersNames();
+        Map<String, Map<String, List<IndexableField>>> nestedFields = 
+            new LinkedHashMap<String, Map<String, List<IndexableField>>>();
+        for (Map.Entry<String, List<IndexableField>> entry : fields.entrySet()) {
+            String name = entry.getKey();
+            int index = name.indexOf('.');
+            if (index != -1) {
+                String property = name.substring(0, index).toLowerCase();
+                Map<String, List<IndexableField>> nested = nestedFields.get(property);
+                if (nested == null) {
+                    nested = new LinkedHashMap<String, List<IndexableField>>();
+                    nestedFields.put(property, nested);
+                }
+                nested.put(name.substring(index + 1), entry.getValue());
+                continue;
+            }
+            String property = name.toLowerCase();
+            if (!setters.contains(property)) {
+                continue;
+            }
+            try {
+                Object value = toPropertyValue(entry.getValue(), beanspector.getAccessorTypeInfo(property));
+                if (value != null) {
+                    beanspector.setValue(property, value);
+                }
+            } catch (Throwable ex) {
+                throw new IllegalStateException("Field " + name + " can not be mapped", ex);
+            }
+        }
+        for (Map.Entry<String, Map<String, List<IndexableField>>> entry : nestedFields.entrySet()) {
+            String property = entry.getKey();
+            if (!setters.contains(property)) {
+                continue;
+            }
+            try {
+                Class<?> cls = beanspector.getAccessorTypeInfo(property).getTypeClass();
+                if (isNestedBeanClass(cls)) {
+                    beanspector.setValue(property, populate(newBean(cls), entry.getValue()));
+                }
+            } catch (Throwable ex) {
+                throw new IllegalStateException("Property " + property + " can not be mapped", ex);
+            }
+        }
+        return bean;
+    }
+    
+    private static boolean isNestedBeanClass(Class<?> cls) {
+        return !cls.isPrimitive() && !cls.isArray() && !cls.isInterface() && !cls.isEnum() 
+            && !Modifier.isAbstract(cls.getModifiers()) && !cls.getName().startsWith("java.");
+    }
+    
+    private static <B> B newBean(Class<B> cls) {
+        try {
+            return cls.newInstance();
+        } catch (Exception ex) {
+            throw new IllegalStateException("Bean " + cls.getName() + " can not be created", ex);
+        }
+    }
+    
+    private static Object getFieldValue(IndexableField field) {
+        Number number = field.numericValue();
+        return number != null ? number : field.stringValue();
+    }
+    
+    private static Object toPropertyValue(List<IndexableField> fields, Beanspector.TypeInfo typeInfo) {
+        Class<?> cls = typeInfo.getTypeClass();
+        if (cls.isArray()) {
+            Class<?> componentClass = cls.getComponentType();
+            Object array = Array.newInstance(componentClass, fields.size());
+            int size = 0;
+            for (IndexableField field : fields) {
+                Object value = convert(getFieldValue(field), getWrapperClass(componentClass));
+                if (value != null) {
+                    Array.set(array, size++, value);
+                }
+            }
+            return size == fields.size() ? array : copyOf(array, size);
+        }
+        if (!Collection.class.isAssignableFrom(cls)) {
+            return convert(getFieldValue(fields.get(0)), typeInfo.getWrappedTypeClass());
+        }
+        Class<?> elementClass = String.class;
+        Type type = typeInfo.getGenericType();
+        if (type instanceof ParameterizedType) {
+            Type elementType = ((ParameterizedType)type).getActualTypeArguments()[0];
+            if (elementType instanceof Class) {
+                elementClass = (Class<?>)elementType;
+            }
+        }
+        Collection<Object> values;
+        if (SortedSet.class.isAssignableFrom(cls)) {
+            values = new TreeSet<Object>();
+        } else if (Set.class.isAssignableFrom(cls)) {
+            values = new HashSet<Object>();
+        } else {
+            values = new ArrayList<Object>(fields.size());
+        }
+        for (IndexableField field : fields) {
+            Object value = convert(getFieldValue(field), elementClass);
+            if (value != null) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+    
+    private static Object copyOf(Object array, int size) {
+        Object copy = Array.newInstance(array.getClass().getComponentType(), size);
+        System.arraycopy(array, 0, copy, 0, size);
+        return copy;
+    }
+    
+    private static Class<?> getWrapperClass(Class<?> cls) {
+        if (!cls.isPrimitive()) {
+            return cls;
+        } else if (cls == int.class) {
+            return Integer.class;
+        } else if (cls == long.class) {
+            return Long.class;
+        } else if (cls == short.class) {
+            return Short.class;
+        } else if (cls == byte.class) {
+            return Byte.class;
+        } else if (cls == double.class) {
+            return Double.class;
+        } else if (cls == float.class) {
+            return Float.class;
+        } else if (cls == boolean.class) {
+            return Boolean.class;
+        } else {
+            return Character.class;
+        }
+    }
+    
+    /**
+     * Converts the stored value, the dates are stored as the numbers of milliseconds
+     */
+    private static Object convert(Object value, Class<?> cls) {
+        if (value == null || cls.isInstance(value)) {
+            return value;
+        }
+        if (value instanceof Number) {
+            Number number = (Number)value;
+            if (cls == Integer.class) {
+                return number.intValue();
+            } else if (cls == Long.class) {
+                return number.longValue();
+            } else if (cls == Double.class) {
+                return number.doubleValue();
+            } else if (cls == Float.class) {
+                return number.floatValue();
+            } else if (cls == Short.class) {
+                return number.shortValue();
+            } else if (cls == Byte.class) {
+                return number.byteValue();
+            } else if (cls == BigInteger.class) {
+                return BigInteger.valueOf(number.longValue());
+            } else if (cls == BigDecimal.class) {
+                return new BigDecimal(number.toString());
+            } else if (cls == Date.class) {
+                return new Date(number.longValue());
+            } else if (cls == String.class) {
+                return number.toString();
+            }
+            return null;
+        }
+        String str = value.toString();
+        if (cls == Boolean.class) {
+            return Boolean.valueOf(str);
+        } else if (cls == Character.class) {
+            return str.length() == 1 ? Character.valueOf(str.charAt(0)) : null;
+        } else if (cls == Integer.class) {
+            return Integer.valueOf(str);
+        } else if (cls == Long.class) {
+            return Long.valueOf(str);
+        } else if (cls == Double.class) {
+            return Double.valueOf(str);
+        } else if (cls == Float.class) {
+            return Float.valueOf(str);
+        } else if (cls == Short.class) {
+            return Short.valueOf(str);
+        } else if (cls == Byte.class) {
+            return Byte.valueOf(str);
+        } else if (cls == BigInteger.class) {
+            return new BigInteger(str);
+        } else if (cls == BigDecimal.class) {
+            return new BigDecimal(str);
+        } else if (cls.isEnum()) {
+            return toEnum(cls, str);
+        }
+        return null;
+    }
+    
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Object toEnum(Class<?> cls, String str) {
+        return Enum.valueOf((Class<? extends Enum>)cls, str);
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.ext.search.lucene;
+
+import java.util.List;
+
+/**
+ * The page of the beans returned by {@link LuceneSearchExecutor}  
+ */
+public final class LuceneSearchPage<T> {
+    private final List<T> results;
+    private final int totalHits;
+    private final String cursor;
+    
+    LuceneSearchPage(List<T> results, int totalHits, String cursor) {
+        this.results = results;
+        this.totalHits = totalHits;
+        this.cursor = cursor;
+    }
+    
+    public List<T> getResults() {
+        return results;
+    }
+    
+    /**
+     * Returns the number of the documents matching the condition
+     * @return the total number of the hits
+     */
+    public int getTotalHits() {
+        return totalHits;
+    }
+    
+    /**
+     * Returns the cursor of the next page
+     * @return the cursor or null if the page is the last one
+     */
+    public String getCursor() {
+        return cursor;
+    }
+}
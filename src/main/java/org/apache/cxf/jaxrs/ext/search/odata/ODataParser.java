@@ -58,7 +58,6 @@ import org.apache.olingo.odata2.core.uri.expression.FilterParser;
 import org.apache.olingo.odata2.core.uri.expression.FilterParserImpl;
 
 public class ODataParser<T> extends AbstractSearchConditionParser<T> {
-    private final FilterParser parser;
     
     private static class TypedProperty {
         private final TypeInfo typeInfo;
@@ -267,8 +266,6 @@ public class ODataParser<T> extends AbstractSearchConditionParser<T> {
                       Map<String, String> contextProperties,
                       Map<String, String> beanProperties) {
         super(tclass, contextProperties, beanProperties);
-        
-        this.parser = new FilterParserImpl(null);
     }
     
     @Override
@@ -276,6 +273,8 @@ public class ODataParser<T> extends AbstractSearchConditionParser<T> {
     public SearchCondition<T> parse(String searchExpression) throws SearchParseException {
         try {
             final T condition = conditionClass.newInstance();
+            // FilterParser keeps the parsing state, using a new one lets ODataParser be shared 
+            final FilterParser parser = new FilterParserImpl(null);
             final FilterExpression expression = parser.parseFilterString(searchExpression);
             final FilterExpressionVisitor visitor = new FilterExpressionVisitor(condition);            
             return (SearchCondition< T >)expression.accept(visitor);            
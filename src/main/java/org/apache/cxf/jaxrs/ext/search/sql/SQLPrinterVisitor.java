@@ -18,22 +18,54 @@
  */
 package org.apache.cxf.jaxrs.ext.search.sql;
 
+import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.cxf.jaxrs.ext.search.KeysetToken;
 import org.apache.cxf.jaxrs.ext.search.PrimitiveStatement;
 import org.apache.cxf.jaxrs.ext.search.SearchCondition;
+import org.apache.cxf.jaxrs.ext.search.SearchParseException;
 import org.apache.cxf.jaxrs.ext.search.SearchUtils;
 import org.apache.cxf.jaxrs.ext.search.visitor.AbstractUntypedSearchConditionVisitor;
+import org.apache.cxf.jaxrs.ext.search.visitor.LocalVisitorState;
+import org.apache.cxf.jaxrs.ext.search.visitor.QueryTemplateCache;
+import org.apache.cxf.jaxrs.ext.search.visitor.VisitorState;
 
-
+/**
+ * Prints the SQL query. The values are inlined as the quoted literals by default, 
+ * the parameterized query contains the placeholders instead, either "?" or, 
+ * if the named parameters are enabled, ":p1", ":p2", etc, and the values 
+ * to be bound are returned by {@link #getParameters()} in the order of the placeholders:
+ * <pre>
+ * SQLPrinterVisitor&lt;Book&gt; visitor = new SQLPrinterVisitor&lt;Book&gt;("books");
+ * visitor.setParameterized(true);
+ * sc.accept(visitor);
+ * PreparedStatement ps = connection.prepareStatement(visitor.getQuery());
+ * List&lt;Object&gt; params = visitor.getParameters();
+ * for (int i = 0; i &lt; params.size(); i++) {
+ *     ps.setObject(i + 1, params.get(i));
+ * }
+ * </pre>
+ * The numeric and boolean values are bound as is and the dates - as java.sql.Timestamp, 
+ * all of them are compared with the plain comparison operators. The other values are bound 
+ * as the strings used by the non parameterized query.
+ * The parameterized queries can be cached per condition shape with {@link #setTemplateCache}.
+ * The pages of the results can be requested with {@link #getKeysetQuery(List, boolean, String, int)}.
+ */
 public class SQLPrinterVisitor<T> extends AbstractUntypedSearchConditionVisitor<T, String> {
 
     private String table;
     private String tableAlias;
     private List<String> columns;
+    private boolean parameterized;
+    private boolean namedParameters;
+    private VisitorState<List<Object>> parametersState = new LocalVisitorState<List<Object>>();
+    private QueryTemplateCache<String> templateCache;
     
     // Can be useful when some other code will build Select and From clauses.
     public SQLPrinterVisitor() {
@@ -62,24 +94,25 @@ public class SQLPrinterVisitor<T> extends AbstractUntypedSearchConditionVisitor<
     }
     
     public void visit(SearchCondition<T> sc) {
+        String shape = null;
+        if (templateCache != null && parameterized && super.getStringBuilder() == null) {
+            shape = SearchUtils.getShape(sc);
+            String query = shape == null ? null : templateCache.get(shape);
+            if (query != null) {
+                List<Object> params = new ArrayList<Object>();
+                bindParameters(sc, params);
+                parametersState.set(params);
+                saveStringBuilder(new StringBuilder(query));
+                return;
+            }
+        }
+        
         StringBuilder sb = getStringBuilder();
         
         PrimitiveStatement statement = sc.getStatement();
         if (statement != null) {
             if (statement.getProperty() != null) {
-                String name = getRealPropertyName(statement.getProperty());
-                String value = getPropertyValue(name, statement.getValue());
-                validatePropertyValue(name, value);
-                
-                value = SearchUtils.toSqlWildcardString(value, isWildcardStringMatch());
-                                
-                if (tableAlias != null) {
-                    name = tableAlias + "." + name;
-                }
-                
-                sb.append(name).append(" ").append(
-                            SearchUtils.conditionTypeToSqlOperator(sc.getConditionType(), value))
-                            .append(" ").append("'").append(value).append("'");
+                appendStatement(sb, statement, parametersState.get());
             }
         } else {
             boolean first = true;
@@ -98,6 +131,161 @@ public class SQLPrinterVisitor<T> extends AbstractUntypedSearchConditionVisitor<
         }
         
         saveStringBuilder(sb);
+        if (shape != null) {
+            templateCache.put(shape, sb.toString());
+        }
+    }
+    
+    /**
+     * Appends the statement to the query, only adds the parameters if the query builder is null
+     */
+    private void appendStatement(StringBuilder sb, PrimitiveStatement statement, List<Object> params) {
+        String name = getRealPropertyName(statement.getProperty());
+        String value = getPropertyValue(name, statement.getValue());
+        validatePropertyValue(name, value);
+        
+        Object typedValue = parameterized ? getTypedParameterValue(statement.getValue()) : null;
+        if (typedValue == null) {
+            value = SearchUtils.toSqlWildcardString(value, isWildcardStringMatch());
+        }
+        if (parameterized) {
+            params.add(typedValue == null ? value : typedValue);
+        }
+        if (sb == null) {
+            return;
+        }
+                        
+        if (tableAlias != null) {
+            name = tableAlias + "." + name;
+        }
+        
+        sb.append(name).append(" ").append(
+                    SearchUtils.conditionTypeToSqlOperator(statement.getCondition(), 
+                                                           typedValue == null ? value : ""))
+                    .append(" ");
+        if (!parameterized) {
+            sb.append("'").append(value).append("'");
+        } else if (namedParameters) {
+            sb.append(":p").append(params.size());
+        } else {
+            sb.append("?");
+        }
+    }
+    
+    private void bindParameters(SearchCondition<T> sc, List<Object> params) {
+        PrimitiveStatement statement = sc.getStatement();
+        if (statement != null) {
+            appendStatement(null, statement, params);
+        } else {
+            for (SearchCondition<T> condition : sc.getSearchConditions()) {
+                bindParameters(condition, params);
+            }
+        }
+    }
+    
+    /**
+     * Returns the last query ordered by the columns and restricted to the rows following 
+     * the last row of the previous page and, if the limit is positive, the maximum number of the rows 
+     * with the clause added by {@link #appendLimit(StringBuilder, int)}. The seek predicate for 
+     * the columns (a, b) and the values (x, y) of the last row is "(a &gt; x OR (a = x AND (b &gt; y)))" 
+     * which, unlike the row value comparison, is supported by all the databases. The combination 
+     * of the columns has to be unique and the columns must not be null. The parameterized query adds 
+     * the last row values to {@link #getParameters()}. 
+     * @param orderColumns the ordering columns
+     * @param asc true if the ascending order is used
+     * @param token the {@link KeysetToken} with the values of the ordering columns of the last row 
+     *        of the previous page, null if the first page is requested
+     * @param limit the page size
+     * @return the query
+     * @throws SearchParseException if the token is not valid
+     */
+    public String getKeysetQuery(List<String> orderColumns, boolean asc, String token, int limit) {
+        StringBuilder sb = removeStringBuilder();
+        if (sb == null) {
+            return null;
+        }
+        List<String> names = new ArrayList<String>(orderColumns.size());
+        for (String column : orderColumns) {
+            String name = getRealPropertyName(column);
+            names.add(tableAlias != null ? tableAlias + "." + name : name);
+        }
+        if (token != null) {
+            List<Object> values = KeysetToken.decode(token);
+            if (values.size() != names.size()) {
+                throw new SearchParseException("Invalid keyset token");
+            }
+            int start = getQueryPrefixLength();
+            String conditions = sb.substring(start);
+            sb.setLength(start);
+            if (conditions.length() > 0) {
+                sb.append("(").append(conditions).append(") AND ");
+            }
+            sb.append("(");
+            appendSeekPredicate(sb, names, values, 0, asc ? " > " : " < ", parametersState.get());
+            sb.append(")");
+        }
+        sb.append(" ORDER BY ");
+        for (int i = 0; i < names.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(names.get(i)).append(asc ? " ASC" : " DESC");
+        }
+        if (limit > 0) {
+            appendLimit(sb, limit);
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Appends the clause limiting the number of the rows returned by the keyset query, 
+     * the LIMIT clause is used by default, the databases which do not support it need 
+     * this method to be overridden, for example, to append the standard 
+     * "FETCH FIRST n ROWS ONLY" clause
+     * @param sb the query ending with the ORDER BY clause
+     * @param limit the positive page size
+     */
+    protected void appendLimit(StringBuilder sb, int limit) {
+        sb.append(" LIMIT ").append(limit);
+    }
+    
+    private void appendSeekPredicate(StringBuilder sb, List<String> names, List<Object> values, 
+                                     int index, String operator, List<Object> params) {
+        String name = names.get(index);
+        sb.append(name).append(operator);
+        appendSeekValue(sb, values.get(index), params);
+        if (index + 1 < names.size()) {
+            sb.append(" OR (").append(name).append(" = ");
+            appendSeekValue(sb, values.get(index), params);
+            sb.append(" AND (");
+            appendSeekPredicate(sb, names, values, index + 1, operator, params);
+            sb.append("))");
+        }
+    }
+    
+    private void appendSeekValue(StringBuilder sb, Object value, List<Object> params) {
+        if (parameterized) {
+            Object typedValue = getTypedParameterValue(value);
+            params.add(typedValue == null ? value.toString() : typedValue);
+            if (namedParameters) {
+                sb.append(":p").append(params.size());
+            } else {
+                sb.append("?");
+            }
+        } else {
+            String literal = value instanceof Date && !(value instanceof Timestamp) 
+                ? new Timestamp(((Date)value).getTime()).toString() : value.toString();
+            sb.append("'").append(literal.replace("'", "''")).append("'");
+        }
+    }
+    
+    private int getQueryPrefixLength() {
+        if (table == null) {
+            return 0;
+        }
+        StringBuilder sb = new StringBuilder();
+        SearchUtils.startSqlQuery(sb, table, tableAlias, columns);
+        return sb.length();
     }
     
     protected StringBuilder getStringBuilder() {
@@ -107,10 +295,78 @@ public class SQLPrinterVisitor<T> extends AbstractUntypedSearchConditionVisitor<
             if (table != null) {
                 SearchUtils.startSqlQuery(sb, table, tableAlias, columns);
             }
+            if (parameterized) {
+                parametersState.set(new ArrayList<Object>());
+            }
         }
         return sb;
     }
     
+    /**
+     * Returns the value to be bound with its own type or null 
+     * if the value has to be bound as a string
+     */
+    protected Object getTypedParameterValue(Object value) {
+        if (value instanceof Number || value instanceof Boolean || value instanceof Timestamp) {
+            return value;
+        } else if (value instanceof Date) {
+            return new Timestamp(((Date)value).getTime());
+        } else {
+            return null;
+        }
+    }
     
+    /**
+     * Returns the values of the parameters of the last parameterized query 
+     * @return the values in the order of the query placeholders 
+     */
+    public List<Object> getParameters() {
+        List<Object> params = parametersState.remove();
+        return params == null ? Collections.<Object>emptyList() : params;
+    }
     
+    public boolean isParameterized() {
+        return parameterized;
+    }
+
+    public void setParameterized(boolean parameterized) {
+        this.parameterized = parameterized;
+    }
+    
+    public boolean isNamedParameters() {
+        return namedParameters;
+    }
+
+    /**
+     * Sets if the named ":p1", ":p2", etc placeholders are used instead of "?" ones
+     * by the parameterized query 
+     * @param namedParameters true if the named placeholders are used
+     */
+    public void setNamedParameters(boolean namedParameters) {
+        this.namedParameters = namedParameters;
+    }
+    
+    /**
+     * Sets the state keeping the parameters, ThreadLocalVisitorState has to be used 
+     * if the parameterized visitor is shared between the threads
+     * @param state the parameters state
+     */
+    public void setParametersState(VisitorState<List<Object>> state) {
+        this.parametersState = state;
+    }
+    
+    public QueryTemplateCache<String> getTemplateCache() {
+        return templateCache;
+    }
+    
+    /**
+     * Sets the cache of the parameterized queries: the conditions with the same
+     * {@link SearchUtils#getShape(SearchCondition) shape} are translated only once and 
+     * only their parameters are collected afterwards. The cache is only used 
+     * by the parameterized visitor.
+     * @param templateCache the cache
+     */
+    public void setTemplateCache(QueryTemplateCache<String> templateCache) {
+        this.templateCache = templateCache;
+    }
 }
@@ -43,6 +43,10 @@ public abstract class AbstractSearchConditionVisitor <T, E> implements SearchCon
         this.fieldMap = fieldMap;
     }
     
+    protected Map<String, String> getFieldMap() {
+        return fieldMap;
+    }
+    
     protected String getRealPropertyName(String name) {
         if (fieldMap != null && fieldMap.containsKey(name)) {
             return fieldMap.get(name);
@@ -120,6 +124,10 @@ public abstract class AbstractSearchConditionVisitor <T, E> implements SearchCon
         this.primitiveFieldTypeMap = primitiveFieldTypeMap;
     }
     
+    protected Map<String, Class<?>> getPrimitiveFieldTypeMap() {
+        return primitiveFieldTypeMap;
+    }
+    
     public SearchConditionVisitor<T, E> visitor() {
         return this;
     }
@@ -170,6 +178,10 @@ public abstract class AbstractSearchConditionVisitor <T, E> implements SearchCon
     public void setValidator(PropertyValidator<Object> validator) {
         this.validator = validator;
     }
+    
+    protected PropertyValidator<Object> getValidator() {
+        return validator;
+    }
 
     public boolean isWildcardStringMatch() {
         return wildcardStringMatch;
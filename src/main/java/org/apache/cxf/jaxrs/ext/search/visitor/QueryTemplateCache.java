@@ -0,0 +1,109 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.ext.search.visitor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of the queries translated by the visitors, keyed by the condition 
+ * shape returned by {@link org.apache.cxf.jaxrs.ext.search.SearchUtils#getShape}.
+ * The cached templates are shared between the threads and must not be modified.
+ * A cache can only be shared between the visitors with the same configuration.
+ */
+public class QueryTemplateCache<V> {
+    public static final int DEFAULT_MAX_SIZE = 500;
+    
+    private final int maxSize;
+    private final Map<String, V> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    
+    public QueryTemplateCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+    
+    /**
+     * Creates the cache
+     * @param maxSize maximum number of the cached templates
+     */
+    public QueryTemplateCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<String, V>(16, 0.75f, true) {
+            private static final long serialVersionUID = 3106349185240372843L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > QueryTemplateCache.this.maxSize;
+            }
+        };
+    }
+    
+    /**
+     * Returns the cached template
+     * @param shape the condition shape
+     * @return the template or null if it has not been cached 
+     */
+    public V get(String shape) {
+        V template;
+        synchronized (entries) {
+            template = entries.get(shape);
+        }
+        if (template == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return template;
+    }
+    
+    public void put(String shape, V template) {
+        synchronized (entries) {
+            entries.put(shape, template);
+        }
+    }
+    
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+    
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+    
+    public int getMaxSize() {
+        return maxSize;
+    }
+    
+    public long getHitCount() {
+        return hits.get();
+    }
+    
+    public long getMissCount() {
+        return misses.get();
+    }
+}
@@ -18,6 +18,8 @@
  */
 package org.apache.cxf.jaxrs.ext.search;
 
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.util.Date;
 import java.util.Set;
 
@@ -46,6 +48,41 @@ public class BeanspectorTest extends Assert {
         new Beanspector<MismatchedTypes>(MismatchedTypes.class);
     }
     
+    @Test
+    public void testMismatchedAccessorTypesIntrospectedAgain() throws SearchParseException {
+        for (int i = 0; i < 2; i++) {
+            try {
+                new Beanspector<MismatchedTypes>(MismatchedTypes.class);
+                fail("IllegalArgumentException expected");
+            } catch (IllegalArgumentException ex) {
+                // the failed introspection is not cached
+            }
+        }
+    }
+    
+    @Test
+    public void testSharedMetadata() throws Throwable {
+        Beanspector<SimpleBean> bean1 = new Beanspector<SimpleBean>(SimpleBean.class);
+        Beanspector<SimpleBean> bean2 = new Beanspector<SimpleBean>(new SimpleBean());
+        assertSame(bean1.getGetter("a"), bean2.getGetter("A"));
+        assertEquals(bean1.getSettersNames(), bean2.getSettersNames());
+        assertNull(bean1.getBean());
+        assertEquals("a", bean2.getValue("a"));
+    }
+    
+    @Test
+    public void testSharedClassLoaders() throws Exception {
+        // the metadata of the classes of the other class loaders is only weakly referenced
+        assertTrue(Beanspector.isSharedClassLoader(null));
+        assertTrue(Beanspector.isSharedClassLoader(String.class.getClassLoader()));
+        assertTrue(Beanspector.isSharedClassLoader(SimpleBean.class.getClassLoader()));
+        
+        URL classes = SimpleBean.class.getProtectionDomain().getCodeSource().getLocation();
+        URLClassLoader loader = new URLClassLoader(new URL[]{classes}, SimpleBean.class.getClassLoader());
+        assertFalse(Beanspector.isSharedClassLoader(loader));
+        assertFalse(Beanspector.isSharedClassLoader(new URLClassLoader(new URL[]{classes}, null)));
+    }
+    
     @Ignore
     static class MismatchedTypes {
         public Date getFoo() {
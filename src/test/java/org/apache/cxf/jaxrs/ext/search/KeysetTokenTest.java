@@ -0,0 +1,59 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.ext.search;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class KeysetTokenTest extends Assert {
+    
+    @Test
+    public void testEncodeDecode() {
+        Timestamp timestamp = new Timestamp(1000L);
+        timestamp.setNanos(123456789);
+        List<Object> values = Arrays.<Object>asList("name?/+", 1, 2L, 3.5d, 4.5f, new BigDecimal("1.25"), 
+                                                     true, new Date(1000L), timestamp);
+        String token = KeysetToken.encode(values);
+        assertTrue(token.matches("[A-Za-z0-9_-]+"));
+        assertEquals(values, KeysetToken.decode(token));
+        assertEquals(123456789, ((Timestamp)KeysetToken.decode(token).get(8)).getNanos());
+    }
+    
+    @Test(expected = SearchParseException.class)
+    public void testInvalidToken() {
+        KeysetToken.decode("a*b");
+    }
+    
+    @Test(expected = SearchParseException.class)
+    public void testTruncatedToken() {
+        String token = KeysetToken.encode("name", 1);
+        KeysetToken.decode(token.substring(0, token.length() - 3));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedValue() {
+        KeysetToken.encode(new Object());
+    }
+}
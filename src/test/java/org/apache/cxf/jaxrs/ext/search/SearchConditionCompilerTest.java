@@ -0,0 +1,302 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.ext.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.cxf.jaxrs.ext.search.fiql.FiqlParser;
+
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+public class SearchConditionCompilerTest extends Assert {
+    
+    private static final List<Employee> EMPLOYEES = Arrays.asList(
+        new Employee("amichalec", 12, new Date(10000L), new Address("Main", 10)),
+        new Employee("ami", 8, null, new Address("Side", 20)),
+        new Employee("fooobar", 20, new Date(20000L), null),
+        new Employee(null, 30, null, new Address(null, 5)),
+        new Employee("zonk", null, new Date(30000L), new Address("Main Street", 40)));
+    
+    private FiqlParser<Employee> parser = new FiqlParser<Employee>(Employee.class);
+    
+    @Test
+    public void testSimpleExpressions() {
+        doTestCompiled("name==ami");
+        doTestCompiled("name!=ami");
+        doTestCompiled("level=gt=10");
+        doTestCompiled("level=le=12");
+        doTestCompiled("name=lt=b");
+    }
+    
+    @Test
+    public void testWildcards() {
+        doTestCompiled("name==ami*");
+        doTestCompiled("name==*bar");
+        doTestCompiled("name==*o*");
+        doTestCompiled("name!=*o*");
+    }
+    
+    @Test
+    public void testComplexExpressions() {
+        doTestCompiled("name==ami*;level=gt=10");
+        doTestCompiled("name==ami*,level=gt=10");
+        doTestCompiled("name==foo*;(name!=*bar,level=gt=10)");
+        doTestCompiled("(name==a*,level==30);(level=lt=20,name==z*)");
+    }
+    
+    @Test
+    public void testNestedProperties() {
+        doTestCompiled("address.street==Main*");
+        doTestCompiled("address.number=ge=10;address.number=lt=40");
+        doTestCompiled("address.street==Main*,level==30");
+    }
+    
+    @Test
+    public void testCompiledConditionIsMet() {
+        SearchCondition<Employee> sc = SearchConditionCompiler.compile(
+            parser.parse("address.street==Main*;level=gt=10"));
+        assertTrue(sc.isMet(new Employee("a", 11, null, new Address("Main", 1))));
+        assertFalse(sc.isMet(new Employee("a", 11, null, new Address("Side", 1))));
+        assertFalse(sc.isMet(new Employee("a", 11, null, null)));
+        assertFalse(sc.isMet(new Employee("a", null, null, new Address("Main", 1))));
+    }
+    
+    @Test
+    public void testPrimitiveCondition() {
+        SearchCondition<Integer> sc = SearchConditionCompiler.compile(
+            new SimpleSearchCondition<Integer>(ConditionType.GREATER_THAN, 10));
+        assertTrue(sc.isMet(20));
+        assertFalse(sc.isMet(10));
+    }
+    
+    @Test
+    public void testCompiledConditionKeepsStructure() {
+        SearchCondition<Employee> original = parser.parse("name==ami*,level=gt=10");
+        SearchCondition<Employee> sc = SearchConditionCompiler.compile(original);
+        assertEquals(ConditionType.OR, sc.getConditionType());
+        assertEquals(2, sc.getSearchConditions().size());
+        assertSame(sc, SearchConditionCompiler.compile(sc));
+        assertEquals(SearchUtils.toSQL(original, "table"), SearchUtils.toSQL(sc, "table"));
+    }
+    
+    @Test
+    public void testTextMatcherFlags() {
+        SearchCondition<Employee> original = parser.parse("name==AMI*;address.street==m*n");
+        assertTrue(original.findAll(EMPLOYEES).isEmpty());
+        assertTrue(SearchConditionCompiler.compile(original).findAll(EMPLOYEES).isEmpty());
+        
+        SearchCondition<Employee> sc = SearchConditionCompiler.compile(original, false, 
+            TextMatcher.CASE_INSENSITIVE | TextMatcher.INNER_WILDCARDS);
+        List<Employee> found = sc.findAll(EMPLOYEES);
+        assertEquals(1, found.size());
+        assertEquals("amichalec", found.get(0).getName());
+    }
+    
+    @Test
+    public void testAndCheapChildrenFirst() {
+        SearchCondition<Counted> sc = SearchConditionCompiler.compile(
+            new FiqlParser<Counted>(Counted.class).parse("name==*o*;level==30"));
+        List<Counted> found = sc.findAll(counted(100));
+        assertEquals(1, found.size());
+        assertEquals(100, Counted.levelCalls);
+        assertEquals(1, Counted.nameCalls);
+    }
+    
+    @Test
+    public void testOrCheapChildrenFirst() {
+        SearchCondition<Counted> sc = SearchConditionCompiler.compile(
+            new FiqlParser<Counted>(Counted.class).parse("name==x*,level==30"));
+        sc.findAll(counted(100));
+        assertEquals(100, Counted.levelCalls);
+        assertEquals(99, Counted.nameCalls);
+    }
+    
+    @Test
+    public void testCustomConditionIsNotMoved() {
+        FiqlParser<Counted> countedParser = new FiqlParser<Counted>(Counted.class);
+        List<SearchCondition<Counted>> conditions = new ArrayList<SearchCondition<Counted>>();
+        conditions.add(countedParser.parse("name==*o*"));
+        conditions.add(new PrimitiveSearchCondition<Counted>("id", 1000L, ConditionType.LESS_THAN, new Counted()) {
+        });
+        conditions.add(countedParser.parse("level==30"));
+        SearchCondition<Counted> sc = SearchConditionCompiler.compile(new AndSearchCondition<Counted>(conditions));
+        assertEquals(1, sc.findAll(counted(100)).size());
+        assertEquals(100, Counted.nameCalls);
+        assertEquals(100, Counted.levelCalls);
+    }
+    
+    @Test
+    public void testAdaptiveReordering() {
+        SearchCondition<Counted> original = new FiqlParser<Counted>(Counted.class).parse("level=ge=0;id==30");
+        List<Counted> beans = counted(5000);
+        
+        assertEquals(1, SearchConditionCompiler.compile(original).findAll(beans).size());
+        assertEquals(5000, Counted.levelCalls);
+        
+        Counted.levelCalls = 0;
+        Counted.idCalls = 0;
+        assertEquals(1, SearchConditionCompiler.compile(original, true).findAll(beans).size());
+        assertEquals(5000, Counted.idCalls);
+        assertTrue(Counted.levelCalls < SearchConditionCompiler.ADAPTIVE_SAMPLE_SIZE + 10);
+    }
+    
+    private void doTestCompiled(String expression) {
+        SearchCondition<Employee> original = parser.parse(expression);
+        List<Employee> expected = original.findAll(EMPLOYEES);
+        for (boolean adaptive : new boolean[]{false, true}) {
+            SearchCondition<Employee> compiled = SearchConditionCompiler.compile(original, adaptive);
+            assertEquals(expression, expected, compiled.findAll(EMPLOYEES));
+            List<Employee> matched = new ArrayList<Employee>();
+            for (Employee e : EMPLOYEES) {
+                if (compiled.isMet(e)) {
+                    matched.add(e);
+                }
+            }
+            assertEquals(expression, expected, matched);
+        }
+    }
+    
+    private static List<Counted> counted(int count) {
+        List<Counted> beans = new ArrayList<Counted>();
+        for (int i = 0; i < count; i++) {
+            beans.add(new Counted(i, "foo" + i, i));
+        }
+        Counted.idCalls = 0;
+        Counted.nameCalls = 0;
+        Counted.levelCalls = 0;
+        return beans;
+    }
+    
+    @Ignore
+    public static class Employee {
+        private String name;
+        private Integer level;
+        private Date hired;
+        private Address address;
+        
+        public Employee() {
+        }
+        
+        public Employee(String name, Integer level, Date hired, Address address) {
+            this.name = name;
+            this.level = level;
+            this.hired = hired;
+            this.address = address;
+        }
+        
+        public String getName() {
+            return name;
+        }
+        public void setName(String name) {
+            this.name = name;
+        }
+        public int getLevel() {
+            return level;
+        }
+        public void setLevel(int level) {
+            this.level = level;
+        }
+        public Date getHired() {
+            return hired;
+        }
+        public void setHired(Date hired) {
+            this.hired = hired;
+        }
+        public Address getAddress() {
+            return address;
+        }
+        public void setAddress(Address address) {
+            this.address = address;
+        }
+    }
+    
+    @Ignore
+    public static class Address {
+        private String street;
+        private int number;
+        
+        public Address() {
+        }
+        
+        public Address(String street, int number) {
+            this.street = street;
+            this.number = number;
+        }
+        
+        public String getStreet() {
+            return street;
+        }
+        public void setStreet(String street) {
+            this.street = street;
+        }
+        public int getNumber() {
+            return number;
+        }
+        public void setNumber(int number) {
+            this.number = number;
+        }
+    }
+    
+    @Ignore
+    public static class Counted {
+        private static int idCalls;
+        private static int nameCalls;
+        private static int levelCalls;
+        
+        private long id;
+        private String name;
+        private int level;
+        
+        public Counted() {
+        }
+        
+        public Counted(long id, String name, int level) {
+            this.id = id;
+            this.name = name;
+            this.level = level;
+        }
+        
+        public long getId() {
+            idCalls++;
+            return id;
+        }
+        public void setId(long id) {
+            this.id = id;
+        }
+        public String getName() {
+            nameCalls++;
+            return name;
+        }
+        public void setName(String name) {
+            this.name = name;
+        }
+        public int getLevel() {
+            levelCalls++;
+            return level;
+        }
+        public void setLevel(int level) {
+            this.level = level;
+        }
+    }
+}
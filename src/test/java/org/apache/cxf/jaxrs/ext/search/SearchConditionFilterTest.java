@@ -0,0 +1,129 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.ext.search;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.cxf.jaxrs.ext.search.fiql.FiqlParser;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class SearchConditionFilterTest extends Assert {
+    
+    private static final List<Book> BOOKS = new ArrayList<Book>();
+    private static ExecutorService executor;
+    
+    private FiqlParser<Book> parser = new FiqlParser<Book>(Book.class);
+    
+    @BeforeClass
+    public static void setUpClass() {
+        for (int i = 0; i < 1000; i++) {
+            BOOKS.add(new Book(i % 3 == 0 ? "CXF " + i : "JAX-RS " + i, i));
+        }
+        executor = Executors.newFixedThreadPool(4);
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+        executor.shutdownNow();
+    }
+    
+    @Test
+    public void testLazyFilter() {
+        SearchCondition<Book> sc = parser.parse("name==CXF*");
+        CountingIterable books = new CountingIterable(BOOKS);
+        Iterator<Book> it = SearchConditionFilter.filter(sc, books).iterator();
+        assertEquals(0, it.next().getId());
+        assertEquals(3, it.next().getId());
+        assertTrue(it.hasNext());
+        assertEquals(7, books.count);
+        assertEquals(6, it.next().getId());
+    }
+    
+    @Test(expected = NoSuchElementException.class)
+    public void testLazyFilterExhausted() {
+        SearchCondition<Book> sc = parser.parse("id=gt=998");
+        Iterator<Book> it = SearchConditionFilter.filter(sc, BOOKS.iterator());
+        assertEquals(999, it.next().getId());
+        assertFalse(it.hasNext());
+        it.next();
+    }
+    
+    @Test
+    public void testFindFirst() {
+        SearchCondition<Book> sc = parser.parse("name==CXF*;id=gt=100");
+        CountingIterable books = new CountingIterable(BOOKS);
+        List<Book> found = SearchConditionFilter.findFirst(sc, books, 3);
+        assertEquals(3, found.size());
+        assertEquals(102, found.get(0).getId());
+        assertEquals(108, found.get(2).getId());
+        assertEquals(109, books.count);
+    }
+    
+    @Test
+    public void testFindAllParallel() {
+        SearchCondition<Book> sc = parser.parse("name==CXF*,id=lt=10");
+        List<Book> expected = sc.findAll(BOOKS);
+        assertEquals(expected, SearchConditionFilter.findAll(sc, BOOKS, executor, 7));
+        assertEquals(expected, SearchConditionFilter.findAll(sc, new LinkedList<Book>(BOOKS), executor, 100));
+        assertEquals(expected, SearchConditionFilter.findAll(sc, BOOKS, executor));
+        
+        SearchCondition<Book> compiled = SearchConditionCompiler.compile(sc);
+        assertEquals(expected, SearchConditionFilter.findAll(compiled, BOOKS, executor, 10));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testFindAllParallelWrongThreshold() {
+        SearchConditionFilter.findAll(parser.parse("id==1"), BOOKS, executor, 0);
+    }
+    
+    private static class CountingIterable implements Iterable<Book> {
+        private final List<Book> books;
+        private int count;
+        
+        CountingIterable(List<Book> books) {
+            this.books = books;
+        }
+        
+        public Iterator<Book> iterator() {
+            final Iterator<Book> it = books.iterator();
+            return new Iterator<Book>() {
+                public boolean hasNext() {
+                    return it.hasNext();
+                }
+                public Book next() {
+                    count++;
+                    return it.next();
+                }
+                public void remove() {
+                    it.remove();
+                }
+            };
+        }
+    }
+}
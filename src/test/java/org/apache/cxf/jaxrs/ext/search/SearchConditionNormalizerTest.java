@@ -0,0 +1,207 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.ext.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.cxf.jaxrs.ext.search.fiql.FiqlParser;
+import org.apache.cxf.jaxrs.ext.search.sql.SQLPrinterVisitor;
+
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+public class SearchConditionNormalizerTest extends Assert {
+    
+    private FiqlParser<Item> parser = new FiqlParser<Item>(Item.class);
+    
+    @Test
+    public void testUnchanged() {
+        SearchCondition<Item> sc = parser.parse("name==a;level==1");
+        assertSame(sc, SearchConditionNormalizer.normalize(sc));
+        sc = parser.parse("name==a");
+        assertSame(sc, SearchConditionNormalizer.normalize(sc));
+    }
+    
+    @Test
+    public void testFlatten() {
+        SearchCondition<Item> sc = normalize("(level=gt=1;(name==a;level=lt=10));name==b");
+        assertEquals(ConditionType.AND, sc.getConditionType());
+        assertEquals(4, sc.getSearchConditions().size());
+        
+        sc = normalize("name==a,(name==b,(level==1,level==2))");
+        assertEquals(ConditionType.OR, sc.getConditionType());
+        assertEquals(4, sc.getSearchConditions().size());
+        assertEquals(toSQL("name==a,name==b,level==1,level==2"), toSQL(sc));
+    }
+    
+    @Test
+    public void testDuplicates() {
+        SearchCondition<Item> sc = normalize("name==a;name==a");
+        assertEquals("a", sc.getStatement().getValue());
+        
+        sc = normalize("(name==a,level==1);(name==a,level==1);name==a*");
+        assertEquals(toSQL("(name==a,level==1);name==a*"), toSQL(sc));
+    }
+    
+    @Test
+    public void testContradictions() {
+        assertEmpty("level==1;level==2");
+        assertEmpty("level=gt=10;level=lt=5");
+        assertEmpty("level=gt=5;level=le=5");
+        assertEmpty("level=ge=5;level=lt=5");
+        assertEmpty("level==5;level!=5");
+        assertEmpty("level==20;level=lt=10");
+        assertEmpty("name==a;(level==1;level==2)");
+        assertEmpty("(level==1;level==2),(level==3;level=gt=4)");
+    }
+    
+    @Test
+    public void testEmptyBranchRemoved() {
+        SearchCondition<Item> sc = normalize("(level==1;level==2),name==a");
+        assertEquals("a", sc.getStatement().getValue());
+    }
+    
+    @Test
+    public void testTightestBounds() {
+        SearchCondition<Item> sc = normalize("level=gt=1;level=ge=5;level=lt=10;level=le=20");
+        assertEquals(toSQL("level=ge=5;level=lt=10"), toSQL(sc));
+        
+        sc = normalize("level=ge=5;level=gt=5;level=le=20;score=lt=2.0;score=lt=3.0");
+        assertEquals(toSQL("level=gt=5;level=le=20;score=lt=2.0"), toSQL(sc));
+        
+        sc = normalize("level=ge=5;level=le=5");
+        assertEquals(toSQL("level=ge=5;level=le=5"), toSQL(sc));
+    }
+    
+    @Test
+    public void testLoosestBounds() {
+        SearchCondition<Item> sc = normalize("level=gt=1,level=gt=5,level==0,level==3,level=lt=-2");
+        assertEquals(toSQL("level=gt=1,level==0,level=lt=-2"), toSQL(sc));
+    }
+    
+    @Test
+    public void testImpliedByEquality() {
+        SearchCondition<Item> sc = normalize("level==5;level=gt=1;level!=7;level=le=5");
+        assertEquals(Integer.valueOf(5), sc.getStatement().getValue());
+        
+        sc = normalize("level=gt=10;level!=7;level!=12");
+        assertEquals(toSQL("level=gt=10;level!=12"), toSQL(sc));
+    }
+    
+    @Test
+    public void testStringsNotMerged() {
+        SearchCondition<Item> sc = normalize("name==a;name==b;name=gt=c;name=gt=d");
+        assertEquals(4, sc.getSearchConditions().size());
+    }
+    
+    @Test
+    public void testEquivalentMatches() {
+        List<Item> items = new ArrayList<Item>();
+        for (int i = 0; i < 30; i++) {
+            items.add(new Item(i % 3 == 0 ? null : "n" + (i % 5), i % 7 == 0 ? null : i - 5, i / 4.0));
+        }
+        String[] expressions = {
+            "level=gt=1;level=ge=5;level=lt=10;level=le=20",
+            "level=gt=1,level=gt=5,level==0,level==3,level=lt=-2",
+            "level==5;level=gt=1;level!=7",
+            "level=gt=10;level!=7;level!=12",
+            "(level==1;level==2),name==n1",
+            "(name==n1,level=lt=4);((score=gt=2.0;score=ge=3.0),level==9);name==n1",
+            "level!=3,level!=4,(level=ge=8;(level=le=10;level=le=9))"
+        };
+        for (String expression : expressions) {
+            SearchCondition<Item> sc = parser.parse(expression);
+            assertEquals(expression, sc.findAll(items), SearchConditionNormalizer.normalize(sc).findAll(items));
+        }
+    }
+    
+    @Test
+    public void testEmptyCondition() {
+        SearchCondition<Item> sc = normalize("level==1;level==2");
+        assertFalse(sc.isMet(new Item("a", 1, 1.0)));
+        assertTrue(sc.findAll(Collections.singletonList(new Item("a", 1, 1.0))).isEmpty());
+        try {
+            sc.accept(new SQLPrinterVisitor<Item>("table"));
+            fail("Empty condition can not be visited");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+    
+    private SearchCondition<Item> normalize(String expression) {
+        return SearchConditionNormalizer.normalize(parser.parse(expression));
+    }
+    
+    private void assertEmpty(String expression) {
+        assertTrue(expression, SearchConditionNormalizer.isEmpty(normalize(expression)));
+    }
+    
+    private String toSQL(String expression) {
+        return toSQL(parser.parse(expression));
+    }
+    
+    private static String toSQL(SearchCondition<Item> sc) {
+        SQLPrinterVisitor<Item> visitor = new SQLPrinterVisitor<Item>("table");
+        sc.accept(visitor);
+        return visitor.getQuery();
+    }
+    
+    @Ignore
+    public static class Item {
+        private String name;
+        private Integer level;
+        private Double score;
+        
+        public Item() {
+        }
+        
+        public Item(String name, Integer level, Double score) {
+            this.name = name;
+            this.level = level;
+            this.score = score;
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        public void setName(String name) {
+            this.name = name;
+        }
+        
+        public Integer getLevel() {
+            return level;
+        }
+        
+        public void setLevel(Integer level) {
+            this.level = level;
+        }
+        
+        public Double getScore() {
+            return score;
+        }
+        
+        public void setScore(Double score) {
+            this.score = score;
+        }
+    }
+}
@@ -20,7 +20,9 @@ package org.apache.cxf.jaxrs.ext.search;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.cxf.jaxrs.ext.search.fiql.FiqlParser;
 import org.apache.cxf.message.Message;
@@ -241,6 +243,84 @@ public class SearchContextImplTest extends Assert {
         assertEquals(String.class, ps.getValueType());
     }
     
+    @Test
+    public void testConditionCache() {
+        SearchConditionCache cache = new SearchConditionCache(2, 0);
+        SearchCondition<Book> sc1 = getCachedCondition(cache, "_s=name==CXF");
+        SearchCondition<Book> sc2 = getCachedCondition(cache, "_s=name==CXF");
+        assertNotNull(sc1);
+        assertSame(sc1, sc2);
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        
+        assertNotSame(sc1, getCachedCondition(cache, "_s=name==CXF*"));
+        assertNotSame(sc1, new SearchContextImpl(createCacheMessage(cache, "_s=name==CXF"))
+            .getCondition(SearchBean.class));
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(3, cache.getMissCount());
+    }
+    
+    @Test
+    public void testConditionCacheExpiry() throws Exception {
+        SearchConditionCache cache = new SearchConditionCache(10, 1);
+        SearchCondition<Book> sc1 = getCachedCondition(cache, "_s=name==CXF");
+        Thread.sleep(10);
+        assertNotSame(sc1, getCachedCondition(cache, "_s=name==CXF"));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getEvictionCount());
+    }
+    
+    @Test
+    public void testConditionCacheEvictsLeastRecentlyUsed() {
+        SearchConditionCache cache = new SearchConditionCache(10, 0);
+        SearchCondition<Book> first = getCachedCondition(cache, "_s=id==0");
+        for (int i = 1; i < 10; i++) {
+            getCachedCondition(cache, "_s=id==" + i);
+        }
+        assertSame(first, getCachedCondition(cache, "_s=id==0"));
+        getCachedCondition(cache, "_s=id==10");
+        // the excess condition and a tenth of the cache are evicted
+        assertEquals(2, cache.getEvictionCount());
+        assertEquals(9, cache.size());
+        assertSame(first, getCachedCondition(cache, "_s=id==0"));
+    }
+    
+    @Test
+    public void testConditionCacheKeepsPropertiesOfCachedKeys() {
+        SearchConditionCache cache = new SearchConditionCache();
+        Map<String, String> beanProps = new HashMap<String, String>();
+        beanProps.put("title", "name");
+        SearchCondition<Book> sc = new SearchContextImpl(createCacheMessage(cache, "_s=title==CXF"))
+            .getCondition(Book.class, beanProps);
+        beanProps.put("identifier", "id");
+        
+        SearchCondition<Book> cached = new SearchContextImpl(createCacheMessage(cache, "_s=title==CXF"))
+            .getCondition(Book.class, Collections.singletonMap("title", "name"));
+        assertSame(sc, cached);
+    }
+    
+    @Test(expected = SearchParseException.class)
+    public void testConditionCacheWrongQuery() {
+        SearchConditionCache cache = new SearchConditionCache();
+        try {
+            getCachedCondition(cache, "_s=ab");
+        } finally {
+            assertEquals(0, cache.size());
+        }
+    }
+    
+    private SearchCondition<Book> getCachedCondition(SearchConditionCache cache, String query) {
+        return new SearchContextImpl(createCacheMessage(cache, query)).getCondition(Book.class);
+    }
+    
+    private Message createCacheMessage(SearchConditionCache cache, String query) {
+        Message m = new MessageImpl();
+        m.put(SearchUtils.CONDITION_CACHE_PROPERTY, cache);
+        m.put(Message.QUERY_STRING, query);
+        return m;
+    }
+    
     @Test
     public void testIsMetCompositeObject() throws Exception {
         SearchCondition<TheBook> filter = 
@@ -18,6 +18,10 @@
  */
 package org.apache.cxf.jaxrs.ext.search;
 
+import java.util.Arrays;
+
+import org.apache.cxf.jaxrs.ext.search.fiql.FiqlParser;
+
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -52,4 +56,70 @@ public class SearchUtilsTest extends Assert {
     public void testSqlWildcardString5() {
         assertEquals("%", SearchUtils.toSqlWildcardString("*", false));
     }
+    
+    @Test
+    public void testShapeIgnoresValues() {
+        FiqlParser<Book> parser = new FiqlParser<Book>(Book.class);
+        assertEquals(SearchUtils.getShape(parser.parse("id=gt=10;name==CXF")),
+                     SearchUtils.getShape(parser.parse("id=gt=20;name==Apache")));
+        assertEquals("AND(id GREATER_THAN java.lang.Long, name EQUALS java.lang.String ?)",
+                     SearchUtils.getShape(parser.parse("id=gt=10;name==CXF")));
+    }
+    
+    @Test
+    public void testShapeStructure() {
+        FiqlParser<Book> parser = new FiqlParser<Book>(Book.class);
+        String shape = SearchUtils.getShape(parser.parse("id=gt=10;name==CXF"));
+        assertFalse(shape.equals(SearchUtils.getShape(parser.parse("id=gt=10,name==CXF"))));
+        assertFalse(shape.equals(SearchUtils.getShape(parser.parse("id=ge=10;name==CXF"))));
+        assertFalse(shape.equals(SearchUtils.getShape(parser.parse("name==CXF;id=gt=10"))));
+        assertFalse(shape.equals(SearchUtils.getShape(parser.parse("id=gt=10;(name==CXF,name==A)"))));
+    }
+    
+    @Test
+    public void testShapeWildcards() {
+        FiqlParser<Book> parser = new FiqlParser<Book>(Book.class);
+        assertEquals("name EQUALS java.lang.String ?*", SearchUtils.getShape(parser.parse("name==CXF*")));
+        assertEquals("name EQUALS java.lang.String *?*?", SearchUtils.getShape(parser.parse("name==*CX*F")));
+        assertEquals("name EQUALS java.lang.String ?%?", SearchUtils.getShape(parser.parse("name==C%F")));
+    }
+    
+    @Test
+    public void testShapeWildcardsOfNestedProperties() {
+        FiqlParser<org.apache.cxf.jaxrs.ext.search.jpa.Book> parser = getEntityParser();
+        String shape = SearchUtils.getShape(parser.parse("ownerInfo.name.name==Fred"));
+        assertTrue(shape.endsWith(" ?"));
+        assertEquals(shape, SearchUtils.getShape(parser.parse("ownerInfo.name.name==Barry")));
+        assertFalse(shape.equals(SearchUtils.getShape(parser.parse("ownerInfo.name.name==Fred*"))));
+        assertTrue(SearchUtils.getShape(parser.parse("ownerInfo.name.name==Fred*")).endsWith(" ?*"));
+    }
+    
+    @Test
+    public void testShapeWildcardsOfCollectionProperties() {
+        FiqlParser<org.apache.cxf.jaxrs.ext.search.jpa.Book> parser = getEntityParser();
+        String shape = SearchUtils.getShape(parser.parse("authors==Ted"));
+        assertEquals(shape, SearchUtils.getShape(parser.parse("authors==John")));
+        assertFalse(shape.equals(SearchUtils.getShape(parser.parse("authors==Ted*"))));
+        assertTrue(SearchUtils.getShape(parser.parse("reviews.authors==*Ted")).endsWith(" *?"));
+    }
+    
+    @Test
+    public void testShapeOfCustomCondition() {
+        SearchCondition<Book> custom = new AbstractComplexCondition<Book>(ConditionType.CUSTOM) {
+            public boolean isMet(Book pojo) {
+                return true;
+            }
+        };
+        assertNull(SearchUtils.getShape(custom));
+        
+        FiqlParser<Book> parser = new FiqlParser<Book>(Book.class);
+        assertNull(SearchUtils.getShape(new OrSearchCondition<Book>(
+            Arrays.asList(parser.parse("id=gt=10"), custom))));
+    }
+    
+    private static FiqlParser<org.apache.cxf.jaxrs.ext.search.jpa.Book> getEntityParser() {
+        // the entities of the JPA tests have the nested and the collection properties
+        return new FiqlParser<org.apache.cxf.jaxrs.ext.search.jpa.Book>(
+            org.apache.cxf.jaxrs.ext.search.jpa.Book.class);
+    }
 }
@@ -0,0 +1,79 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.ext.search;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TextMatcherTest extends Assert {
+    
+    @Test
+    public void testExact() {
+        TextMatcher m = TextMatcher.compile("bar");
+        assertTrue(m.isExact());
+        assertTrue(m.matches("bar"));
+        assertFalse(m.matches("Bar"));
+        assertFalse(m.matches("barbar"));
+        assertTrue(TextMatcher.compile("").matches(""));
+    }
+    
+    @Test
+    public void testPrefixSuffixContains() {
+        assertTrue(TextMatcher.compile("ba*").matches("bar"));
+        assertFalse(TextMatcher.compile("ba*").matches("abar"));
+        assertTrue(TextMatcher.compile("*ar").matches("bar"));
+        assertFalse(TextMatcher.compile("*ar").matches("r"));
+        assertTrue(TextMatcher.compile("*a*").matches("bar"));
+        assertFalse(TextMatcher.compile("*x*").matches("bar"));
+        assertTrue(TextMatcher.compile("*").matches(""));
+        assertTrue(TextMatcher.compile("**").matches("bar"));
+    }
+    
+    @Test
+    public void testInnerWildcardIsLiteralByDefault() {
+        TextMatcher m = TextMatcher.compile("*ba*r*");
+        assertFalse(m.matches("bar"));
+        assertTrue(m.matches("fooba*rbaz"));
+        assertTrue(TextMatcher.compile("a*b").matches("a*b"));
+        assertFalse(TextMatcher.compile("a*b").matches("axb"));
+    }
+    
+    @Test
+    public void testInnerWildcards() {
+        TextMatcher m = TextMatcher.compile("a*b*c", TextMatcher.INNER_WILDCARDS);
+        assertTrue(m.matches("abc"));
+        assertTrue(m.matches("axxbyyc"));
+        assertTrue(m.matches("abcbc"));
+        assertFalse(m.matches("acb"));
+        assertFalse(m.matches("abcd"));
+        assertFalse(TextMatcher.compile("ab*ba", TextMatcher.INNER_WILDCARDS).matches("aba"));
+        assertTrue(TextMatcher.compile("*ba*r*", TextMatcher.INNER_WILDCARDS).matches("bar"));
+    }
+    
+    @Test
+    public void testCaseInsensitive() {
+        int flags = TextMatcher.CASE_INSENSITIVE;
+        assertTrue(TextMatcher.compile("bar", flags).matches("BaR"));
+        assertTrue(TextMatcher.compile("BA*", flags).matches("bar"));
+        assertTrue(TextMatcher.compile("*AR", flags).matches("bar"));
+        assertTrue(TextMatcher.compile("*A*", flags).matches("bar"));
+        assertFalse(TextMatcher.compile("*X*", flags).matches("bar"));
+        assertTrue(TextMatcher.compile("B*r", flags | TextMatcher.INNER_WILDCARDS).matches("bAR"));
+    }
+}
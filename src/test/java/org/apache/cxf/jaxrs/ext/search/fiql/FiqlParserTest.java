@@ -21,10 +21,15 @@ package org.apache.cxf.jaxrs.ext.search.fiql;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.xml.datatype.DatatypeFactory;
 
@@ -111,6 +116,69 @@ public class FiqlParserTest extends Assert {
         parser.parse("name==bbb;,level==111");
     }
 
+    @Test(expected = SearchParseException.class)
+    public void testEmptyExpression() throws SearchParseException {
+        parser.parse("");
+    }
+
+    @Test(expected = SearchParseException.class)
+    public void testEmptyBrackets() throws SearchParseException {
+        parser.parse("name==a;(),level==10");
+    }
+
+    @Test
+    public void testUnmatchedBracketPosition() {
+        try {
+            parser.parse("name==a;(name!=b;(level==10,(name!=b))");
+            fail("Unmatched bracket expected");
+        } catch (SearchParseException ex) {
+            assertEquals("Unmatched opening bracket at position 8", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testUnexpectedClosingBracketPosition() {
+        try {
+            parser.parse("name==bbb;))()level==111");
+            fail("Unexpected bracket expected");
+        } catch (SearchParseException ex) {
+            assertEquals("Unexpected closing bracket at position 10", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testMissingComparisonPosition() {
+        try {
+            parser.parse("name==bbb;,level==111");
+            fail("Missing comparison expected");
+        } catch (SearchParseException ex) {
+            assertEquals("Missing comparison at position 10", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testValueWithBrackets() throws SearchParseException {
+        SearchCondition<Condition> filter = parser.parse("name==a(b;c),level==10");
+        assertEquals(ConditionType.OR, filter.getConditionType());
+        assertEquals("a(b;c)", filter.getSearchConditions().get(0).getStatement().getValue());
+    }
+
+    @Test
+    public void testLongOrList() throws SearchParseException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("level==").append(i);
+        }
+        SearchCondition<Condition> filter = parser.parse(sb.toString());
+        assertEquals(ConditionType.OR, filter.getConditionType());
+        assertEquals(1000, filter.getSearchConditions().size());
+        assertTrue(filter.isMet(new Condition("a", 999, null)));
+        assertFalse(filter.isMet(new Condition("a", 1000, null)));
+    }
+
     @Test(expected = SearchParseException.class)
     public void testSetterMissing() throws SearchParseException {
         parser.parse("noSuchSetter==xxx");
@@ -302,6 +370,61 @@ public class FiqlParserTest extends Assert {
         assertFalse(filter.isMet(new Condition("fooxxxbar", 0, null)));
     }
 
+    @Test
+    public void testConcurrentParsing() throws Exception {
+        final String[] expressions = {
+            "name==ami*;level=gt=10",
+            "name==foo*;(name!=*bar,level=gt=10)",
+            "(name==test,level==18);(name==test1,level!=19)",
+            "theName==king2",
+            "level=le=5,name==*o*"
+        };
+        final Condition[] conditions = {
+            new Condition("amichalec", 12, null, "king2"),
+            new Condition("fooooobar", 20, null),
+            new Condition("test", 19, null),
+            new Condition("zonk", 3, null)
+        };
+        final List<String> expected = new ArrayList<String>();
+        for (String exp : expressions) {
+            expected.add(describe(parser.parse(exp), conditions));
+        }
+        
+        final FiqlParser<Condition> sharedParser = parser;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (int i = 0; i < 8; i++) {
+                final int offset = i;
+                results.add(executor.submit(new Callable<Boolean>() {
+                    public Boolean call() {
+                        for (int j = 0; j < 500; j++) {
+                            int index = (offset + j) % expressions.length;
+                            String result = describe(sharedParser.parse(expressions[index]), conditions);
+                            if (!expected.get(index).equals(result)) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    private static String describe(SearchCondition<Condition> filter, Condition[] conditions) {
+        StringBuilder sb = new StringBuilder(SearchUtils.toSQL(filter, "table"));
+        for (Condition c : conditions) {
+            sb.append(filter.isMet(c) ? " +" : " -");
+        }
+        return sb.toString();
+    }
+
     @Ignore
     public static class Condition {
         private String name;
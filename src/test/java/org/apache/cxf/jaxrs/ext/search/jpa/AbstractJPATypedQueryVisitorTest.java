@@ -194,7 +194,7 @@ public abstract class AbstractJPATypedQueryVisitorTest extends Assert {
         SearchCondition<Book> filter = getParser(visitorProps, parserBinProps)
             .parse(expression);
         SearchConditionVisitor<Book, TypedQuery<Book>> jpa = 
-            new JPATypedQueryVisitor<Book>(em, Book.class, visitorProps, joinProps);
+            configure(new JPATypedQueryVisitor<Book>(em, Book.class, visitorProps, joinProps));
         filter.accept(jpa);
         TypedQuery<Book> query = jpa.getQuery();
         return query.getResultList();
@@ -203,7 +203,7 @@ public abstract class AbstractJPATypedQueryVisitorTest extends Assert {
     protected List<Tuple> criteriaQueryBooksTuple(String expression) throws Exception {
         SearchCondition<Book> filter = getParser().parse(expression);
         JPACriteriaQueryVisitor<Book, Tuple> jpa = 
-            new JPACriteriaQueryVisitor<Book, Tuple>(em, Book.class, Tuple.class);
+            configure(new JPACriteriaQueryVisitor<Book, Tuple>(em, Book.class, Tuple.class));
         filter.accept(jpa);
         
         List<SingularAttribute<Book, ?>> selections = 
@@ -213,13 +213,13 @@ public abstract class AbstractJPATypedQueryVisitorTest extends Assert {
         jpa.selectTuple(selections);
         
         CriteriaQuery<Tuple> cquery = jpa.getQuery();
-        return em.createQuery(cquery).getResultList();
+        return jpa.bindParameters(em.createQuery(cquery)).getResultList();
     }
     
     protected long criteriaQueryBooksCount(String expression) throws Exception {
         SearchCondition<Book> filter = getParser().parse(expression);
         JPACriteriaQueryVisitor<Book, Long> jpa = 
-            new JPACriteriaQueryVisitor<Book, Long>(em, Book.class, Long.class);
+            configure(new JPACriteriaQueryVisitor<Book, Long>(em, Book.class, Long.class));
         filter.accept(jpa);
         return jpa.count();
     }
@@ -227,7 +227,7 @@ public abstract class AbstractJPATypedQueryVisitorTest extends Assert {
     protected List<Book> criteriaQueryBooksOrderBy(String expression, boolean asc) throws Exception {
         SearchCondition<Book> filter = getParser().parse(expression);
         JPACriteriaQueryVisitor<Book, Book> jpa = 
-            new JPACriteriaQueryVisitor<Book, Book>(em, Book.class, Book.class);
+            configure(new JPACriteriaQueryVisitor<Book, Book>(em, Book.class, Book.class));
         filter.accept(jpa);
         
         List<SingularAttribute<Book, ?>> selections = 
@@ -237,10 +237,30 @@ public abstract class AbstractJPATypedQueryVisitorTest extends Assert {
         return jpa.getOrderedTypedQuery(selections, asc).getResultList();
     }
     
+    protected List<Book> criteriaQueryBooksKeyset(String expression, 
+                                                 List<SingularAttribute<Book, ?>> attributes, 
+                                                 boolean asc, 
+                                                 int limit) throws Exception {
+        List<Book> books = new ArrayList<Book>();
+        String token = null;
+        while (true) {
+            JPACriteriaQueryVisitor<Book, Book> jpa = 
+                configure(new JPACriteriaQueryVisitor<Book, Book>(em, Book.class, Book.class));
+            getParser().parse(expression).accept(jpa);
+            List<Book> page = jpa.getKeysetTypedQuery(attributes, asc, token, limit).getResultList();
+            assertTrue(page.size() <= limit);
+            if (page.isEmpty()) {
+                return books;
+            }
+            books.addAll(page);
+            token = jpa.getKeysetToken(page.get(page.size() - 1), attributes);
+        }
+    }
+    
     protected List<BookInfo> criteriaQueryBooksConstruct(String expression) throws Exception {
         SearchCondition<Book> filter = getParser().parse(expression);
         JPACriteriaQueryVisitor<Book, BookInfo> jpa = 
-            new JPACriteriaQueryVisitor<Book, BookInfo>(em, Book.class, BookInfo.class);
+            configure(new JPACriteriaQueryVisitor<Book, BookInfo>(em, Book.class, BookInfo.class));
         filter.accept(jpa);
         
         List<SingularAttribute<Book, ?>> selections = 
@@ -251,13 +271,13 @@ public abstract class AbstractJPATypedQueryVisitorTest extends Assert {
         jpa.selectConstruct(selections);
         
         CriteriaQuery<BookInfo> cquery = jpa.getQuery();
-        return em.createQuery(cquery).getResultList();
+        return jpa.bindParameters(em.createQuery(cquery)).getResultList();
     }
     
     protected List<Object[]> criteriaQueryBooksArray(String expression) throws Exception {
         SearchCondition<Book> filter = getParser().parse(expression);
         JPACriteriaQueryVisitor<Book, Object[]> jpa = 
-            new JPACriteriaQueryVisitor<Book, Object[]>(em, Book.class, Object[].class);
+            configure(new JPACriteriaQueryVisitor<Book, Object[]>(em, Book.class, Object[].class));
         filter.accept(jpa);
         
         List<SingularAttribute<Book, ?>> selections = 
@@ -268,6 +288,14 @@ public abstract class AbstractJPATypedQueryVisitorTest extends Assert {
         return jpa.getArrayTypedQuery(selections).getResultList();
     }    
     
+    protected <V extends AbstractJPATypedQueryVisitor<Book, ?, ?>> V configure(V visitor) {
+        return visitor;
+    }
+    
+    protected EntityManager getEntityManager() {
+        return em;
+    }
+    
     protected Date parseDate(String value) throws Exception {
         return new SimpleDateFormat(SearchUtils.DEFAULT_DATE_FORMAT).parse(value);
     }
@@ -18,15 +18,22 @@
  */
 package org.apache.cxf.jaxrs.ext.search.jpa;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.persistence.Tuple;
+import javax.persistence.metamodel.SingularAttribute;
 
+import org.apache.cxf.jaxrs.ext.search.KeysetToken;
 import org.apache.cxf.jaxrs.ext.search.SearchConditionParser;
+import org.apache.cxf.jaxrs.ext.search.SearchParseException;
 import org.apache.cxf.jaxrs.ext.search.fiql.FiqlParser;
 import org.junit.Test;
 
@@ -165,6 +172,21 @@ public class JPATypedQueryVisitorFiqlTest extends AbstractJPATypedQueryVisitorTe
         assertEquals(1L, criteriaQueryBooksCount("id==10"));
     }
     
+    @Test
+    public void testResultsAndCountFromOneVisit() throws Exception {
+        JPACriteriaQueryVisitor<Book, Book> jpa = 
+            configure(new JPACriteriaQueryVisitor<Book, Book>(getEntityManager(), Book.class, Book.class));
+        getParser().parse("id=ge=9;reviews.authors==Ted").accept(jpa);
+        List<SingularAttribute<Book, ?>> attributes = new ArrayList<SingularAttribute<Book, ?>>();
+        attributes.add(Book_.id);
+        List<Book> books = jpa.getKeysetTypedQuery(attributes, true, null, 2).getResultList();
+        assertEquals(2, books.size());
+        assertEquals(3L, jpa.count().longValue());
+        assertEquals(3L, jpa.count(5));
+        assertEquals(3L, jpa.count(2));
+        assertEquals(2L, jpa.count(1));
+    }
+    
     
     @Test
     public void testEqualsCriteriaQueryConstruct() throws Exception {
@@ -193,6 +215,81 @@ public class JPATypedQueryVisitorFiqlTest extends AbstractJPATypedQueryVisitorTe
         assertEquals(9, books.get(2).getId());
     }
     
+    @Test
+    public void testKeysetPaginationAsc() throws Exception {
+        List<SingularAttribute<Book, ?>> attributes = new ArrayList<SingularAttribute<Book, ?>>();
+        attributes.add(Book_.bookTitle);
+        attributes.add(Book_.id);
+        List<Book> books = criteriaQueryBooksKeyset("id=ge=9", attributes, true, 2);
+        assertEquals(3, books.size());
+        assertEquals(10, books.get(0).getId());
+        assertEquals(11, books.get(1).getId());
+        assertEquals(9, books.get(2).getId());
+    }
+    
+    @Test
+    public void testKeysetPaginationDesc() throws Exception {
+        List<SingularAttribute<Book, ?>> attributes = new ArrayList<SingularAttribute<Book, ?>>();
+        attributes.add(Book_.id);
+        List<Book> books = criteriaQueryBooksKeyset("reviews=gt=0", attributes, false, 1);
+        assertEquals(3, books.size());
+        assertEquals(11, books.get(0).getId());
+        assertEquals(10, books.get(1).getId());
+        assertEquals(9, books.get(2).getId());
+    }
+    
+    @Test
+    public void testKeysetOrderByReplacesSeek() throws Exception {
+        List<SingularAttribute<Book, ?>> attributes = 
+            Collections.<SingularAttribute<Book, ?>>singletonList(Book_.id);
+        JPACriteriaQueryVisitor<Book, Book> jpa = 
+            configure(new JPACriteriaQueryVisitor<Book, Book>(getEntityManager(), Book.class, Book.class));
+        getParser().parse("id=ge=9").accept(jpa);
+        
+        Book first = jpa.getKeysetTypedQuery(attributes, true, null, 1).getSingleResult();
+        assertEquals(9, first.getId());
+        String firstToken = jpa.getKeysetToken(first, attributes);
+        Book second = jpa.getKeysetTypedQuery(attributes, true, firstToken, 1).getSingleResult();
+        assertEquals(10, second.getId());
+        String secondToken = jpa.getKeysetToken(second, attributes);
+        assertEquals(11, jpa.getKeysetTypedQuery(attributes, true, secondToken, 1).getSingleResult().getId());
+        
+        // the previous seek predicates are not kept
+        assertEquals(10, jpa.getKeysetTypedQuery(attributes, true, firstToken, 1).getSingleResult().getId());
+        assertEquals(9, jpa.getKeysetTypedQuery(attributes, true, null, 1).getSingleResult().getId());
+        assertEquals(3, jpa.getKeysetTypedQuery(attributes, true, null, 10).getResultList().size());
+    }
+    
+    @Test
+    public void testResultIterator() throws Exception {
+        JPATypedQueryVisitor<Book> jpa = 
+            configure(new JPATypedQueryVisitor<Book>(getEntityManager(), Book.class));
+        getParser().parse("id=ge=9").accept(jpa);
+        JPAResultIterator<Book> it = 
+            jpa.iterate(Collections.<SingularAttribute<Book, ?>>singletonList(Book_.id), 2);
+        
+        Book first = it.next();
+        assertEquals(9, first.getId());
+        assertTrue(getEntityManager().contains(first));
+        List<Integer> ids = new ArrayList<Integer>();
+        while (it.hasNext()) {
+            ids.add(it.next().getId());
+        }
+        assertEquals(Arrays.asList(10, 11), ids);
+        assertFalse(getEntityManager().contains(first));
+        assertFalse(it.hasNext());
+    }
+    
+    @Test(expected = SearchParseException.class)
+    public void testInvalidKeysetToken() throws Exception {
+        List<SingularAttribute<Book, ?>> attributes = new ArrayList<SingularAttribute<Book, ?>>();
+        attributes.add(Book_.id);
+        JPACriteriaQueryVisitor<Book, Book> jpa = 
+            configure(new JPACriteriaQueryVisitor<Book, Book>(getEntityManager(), Book.class, Book.class));
+        getParser().parse("id=ge=9").accept(jpa);
+        jpa.getKeysetTypedQuery(attributes, true, KeysetToken.encode("9"), 1);
+    }
+    
     @Test
     public void testEqualsCriteriaQueryArray() throws Exception {
         List<Object[]> books = criteriaQueryBooksArray("id==10");
@@ -330,6 +427,106 @@ public class JPATypedQueryVisitorFiqlTest extends AbstractJPATypedQueryVisitorTe
             || 11 == books.get(0).getId() && 9 == books.get(1).getId());
     }
     
+    @Test
+    public void testPropertyPathsFromMetamodel() throws Exception {
+        JPAPropertyPaths<Book> paths = 
+            new JPAPropertyPaths<Book>(getEntityManager().getMetamodel(), Book.class);
+        
+        JPAPropertyPaths.PropertyPath path = paths.getPath("reviews.authors");
+        assertEquals(2, path.size());
+        assertTrue(path.isCollection(0));
+        assertTrue(path.isCollection(1));
+        assertEquals(String.class, path.getJavaType());
+        assertSame(path, paths.getPath("reviews.authors"));
+        
+        path = paths.getPath("ownerInfo.name.name");
+        assertEquals(3, path.size());
+        assertFalse(path.isCollection(0) || path.isCollection(1) || path.isCollection(2));
+        assertEquals(String.class, path.getJavaType());
+        
+        assertEquals(Date.class, paths.getPath("ownerInfo.dateOfBirth").getJavaType());
+        assertFalse(paths.getPath("library").isCollection(0));
+        assertNull(paths.getPath("unknown"));
+        assertNull(paths.getPath("ownerInfo.unknown"));
+        
+        Object value = getParser().parse("reviews.authors==Ted").getStatement().getValue();
+        assertEquals("Ted", paths.getValue(paths.getPath("reviews.authors"), value));
+        value = getParser().parse("ownerInfo.name.name==Fred").getStatement().getValue();
+        assertEquals("Fred", paths.getValue(paths.getPath("ownerInfo.name.name"), value));
+    }
+    
+    @Test
+    public void testSharedPropertyPaths() throws Exception {
+        JPAPropertyPaths<Book> paths = 
+            new JPAPropertyPaths<Book>(getEntityManager().getMetamodel(), Book.class);
+        for (String expression : new String[] {"reviews.authors==Ted", "reviews.authors==Barry"}) {
+            JPATypedQueryVisitor<Book> jpa = 
+                configure(new JPATypedQueryVisitor<Book>(getEntityManager(), Book.class));
+            jpa.setPropertyPaths(paths);
+            getParser().parse(expression).accept(jpa);
+            assertSame(paths, jpa.getPropertyPaths());
+            assertEquals(expression.endsWith("Ted") ? 3 : 0, jpa.getQuery().getResultList().size());
+        }
+    }
+    
+    @Test
+    public void testVisitorReuse() throws Exception {
+        JPATypedQueryVisitor<Book> jpa = 
+            configure(new JPATypedQueryVisitor<Book>(getEntityManager(), Book.class));
+        
+        getParser().parse("id=lt=10,id=gt=10").accept(jpa);
+        assertEquals(2, jpa.getQuery().getResultList().size());
+        
+        getParser().parse("id==10").accept(jpa);
+        List<Book> books = jpa.getQuery().getResultList();
+        assertEquals(1, books.size());
+        assertEquals(10, books.get(0).getId());
+        
+        getParser().parse("id==11").accept(jpa);
+        jpa.reset(getEntityManager());
+        getParser().parse("bookTitle==num9").accept(jpa);
+        books = jpa.getQuery().getResultList();
+        assertEquals(1, books.size());
+        assertEquals(9, books.get(0).getId());
+    }
+    
+    @Test
+    public void testJoinsSharedByAlternatives() throws Exception {
+        JPATypedQueryVisitor<Book> jpa = 
+            configure(new JPATypedQueryVisitor<Book>(getEntityManager(), Book.class));
+        getParser().parse("reviews.authors==Ted,reviews.authors==Barry").accept(jpa);
+        assertEquals(Integer.valueOf(1), jpa.getJoinCounts().get("reviews"));
+        assertEquals(Integer.valueOf(1), jpa.getJoinCounts().get("reviews.authors"));
+        assertEquals(3, jpa.getQuery().getResultList().size());
+    }
+    
+    @Test
+    public void testJoinsNotSharedByConjunctions() throws Exception {
+        JPATypedQueryVisitor<Book> jpa = 
+            configure(new JPATypedQueryVisitor<Book>(getEntityManager(), Book.class));
+        getParser().parse("reviews.authors==Ted;reviews.authors==Ted").accept(jpa);
+        assertEquals(Integer.valueOf(2), jpa.getJoinCounts().get("reviews"));
+        assertEquals(Integer.valueOf(2), jpa.getJoinCounts().get("reviews.authors"));
+        assertEquals(3, jpa.getQuery().getResultList().size());
+    }
+    
+    @Test
+    public void testExistsSubqueries() throws Exception {
+        String expression = "reviews.authors==Ted;reviews.review==good,id==10";
+        JPATypedQueryVisitor<Book> jpa = 
+            configure(new JPATypedQueryVisitor<Book>(getEntityManager(), Book.class));
+        getParser().parse(expression).accept(jpa);
+        Set<Book> joined = new HashSet<Book>(jpa.getQuery().getResultList());
+        
+        jpa = configure(new JPATypedQueryVisitor<Book>(getEntityManager(), Book.class));
+        jpa.setExistsSubqueries(true);
+        getParser().parse(expression).accept(jpa);
+        assertTrue(jpa.getJoinCounts().isEmpty());
+        List<Book> books = jpa.getQuery().getResultList();
+        assertEquals(2, books.size());
+        assertEquals(joined, new HashSet<Book>(books));
+    }
+    
     @Override
     protected SearchConditionParser<Book> getParser(Map<String, String> visitorProps,
             Map<String, String> parserBinProps) {
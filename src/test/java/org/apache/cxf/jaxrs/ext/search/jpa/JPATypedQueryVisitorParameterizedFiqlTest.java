@@ -0,0 +1,132 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.ext.search.jpa;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Root;
+
+import org.apache.cxf.jaxrs.ext.search.SearchCondition;
+import org.apache.cxf.jaxrs.ext.search.visitor.QueryTemplateCache;
+import org.junit.Test;
+
+/**
+ * Runs the FIQL queries with the parameterized visitors, every typed query 
+ * is executed twice to check the cached criteria query gives the same results
+ */
+public class JPATypedQueryVisitorParameterizedFiqlTest extends JPATypedQueryVisitorFiqlTest {
+    
+    private QueryTemplateCache<JPAQueryTemplate<Book>> cache = 
+        new QueryTemplateCache<JPAQueryTemplate<Book>>();
+    
+    @Override
+    protected <V extends AbstractJPATypedQueryVisitor<Book, ?, ?>> V configure(V visitor) {
+        visitor.setParameterized(true);
+        return visitor;
+    }
+    
+    @Override
+    protected List<Book> queryBooks(String expression, 
+                                    Map<String, String> visitorProps,
+                                    Map<String, String> parserBinProps,
+                                    List<String> joinProps) throws Exception {
+        long hits = cache.getHitCount();
+        List<Book> books = doQueryBooks(expression, visitorProps, parserBinProps, joinProps);
+        List<Book> cachedBooks = doQueryBooks(expression, visitorProps, parserBinProps, joinProps);
+        assertEquals(hits + 1, cache.getHitCount());
+        assertEquals(books, cachedBooks);
+        return books;
+    }
+    
+    private List<Book> doQueryBooks(String expression, 
+                                    Map<String, String> visitorProps,
+                                    Map<String, String> parserBinProps,
+                                    List<String> joinProps) throws Exception {
+        SearchCondition<Book> filter = getParser(visitorProps, parserBinProps).parse(expression);
+        JPATypedQueryVisitor<Book> jpa = 
+            configure(new JPATypedQueryVisitor<Book>(getEntityManager(), Book.class, 
+                                                     visitorProps, joinProps));
+        jpa.setTemplateCache(cache);
+        filter.accept(jpa);
+        TypedQuery<Book> query = jpa.getQuery();
+        return query.getResultList();
+    }
+    
+    @Test
+    public void testSameShapeDifferentValues() throws Exception {
+        List<Book> books = queryBooks("id=gt=9;bookTitle==num*");
+        assertEquals(2, books.size());
+        
+        long hits = cache.getHitCount();
+        books = doQueryBooks("id=gt=10;bookTitle==num1*", null, null, null);
+        assertEquals(hits + 1, cache.getHitCount());
+        assertEquals(1, books.size());
+        assertEquals(11, books.get(0).getId());
+    }
+    
+    @Test
+    public void testExactAndWildcardValuesOfNestedProperty() throws Exception {
+        long hits = cache.getHitCount();
+        assertEquals(1, doQueryBooks("ownerInfo.name.name==Bill", null, null, null).size());
+        assertEquals(2, doQueryBooks("ownerInfo.name.name==B*", null, null, null).size());
+        assertEquals(1, doQueryBooks("ownerInfo.name.name==Fred", null, null, null).size());
+        assertEquals(hits + 1, cache.getHitCount());
+    }
+    
+    @Test
+    public void testWildcardAndExactValuesOfCollectionProperty() throws Exception {
+        long hits = cache.getHitCount();
+        assertEquals(2, doQueryBooks("authors==J*", null, null, null).size());
+        assertEquals(1, doQueryBooks("authors==Barry", null, null, null).size());
+        assertEquals(1, doQueryBooks("authors==Bar*", null, null, null).size());
+        assertEquals(hits + 1, cache.getHitCount());
+    }
+    
+    @Test
+    public void testCachedQueryAliases() throws Exception {
+        SearchCondition<Book> filter = getParser().parse("id=gt=9;reviews.authors==Ted;authors==John");
+        JPATypedQueryVisitor<Book> jpa = 
+            configure(new JPATypedQueryVisitor<Book>(getEntityManager(), Book.class));
+        jpa.setTemplateCache(cache);
+        filter.accept(jpa);
+        CriteriaQuery<Book> cq = jpa.getCriteriaQuery();
+        // the persistence provider does not need to set the aliases of the shared query
+        Set<String> aliases = new HashSet<String>();
+        for (Root<?> root : cq.getRoots()) {
+            addAliases(aliases, root);
+        }
+        assertEquals(4, aliases.size());
+        assertEquals(1, jpa.getTypedQuery().getResultList().size());
+    }
+    
+    private static void addAliases(Set<String> aliases, From<?, ?> from) {
+        assertNotNull(from.getAlias());
+        assertTrue(aliases.add(from.getAlias()));
+        for (Join<?, ?> join : from.getJoins()) {
+            addAliases(aliases, join);
+        }
+    }
+}
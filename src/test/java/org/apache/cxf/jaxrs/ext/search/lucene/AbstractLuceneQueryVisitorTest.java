@@ -18,7 +18,9 @@
  */
 package org.apache.cxf.jaxrs.ext.search.lucene;
 
+import java.text.SimpleDateFormat;
 import java.util.Collections;
+import java.util.Date;
 
 import org.apache.cxf.jaxrs.ext.search.SearchBean;
 import org.apache.cxf.jaxrs.ext.search.SearchCondition;
@@ -26,9 +28,14 @@ import org.apache.cxf.jaxrs.ext.search.SearchConditionParser;
 import org.apache.cxf.jaxrs.ext.search.SearchConditionVisitor;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.DateTools;
+import org.apache.lucene.document.DateTools.Resolution;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoubleField;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FloatField;
 import org.apache.lucene.document.IntField;
+import org.apache.lucene.document.LongField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
@@ -63,6 +70,11 @@ public abstract class AbstractLuceneQueryVisitorTest extends Assert {
         
         IntField intField = new IntField("intfield", 4, Field.Store.YES);
         doc.add(intField);
+        doc.add(new LongField("longfield", 4000000000L, Field.Store.YES));
+        doc.add(new DoubleField("doublefield", 4.5d, Field.Store.YES));
+        doc.add(new FloatField("floatfield", 4.5f, Field.Store.YES));
+        Date date = new SimpleDateFormat("yyyy-MM-dd HH:mm").parse("2013-01-15 10:30");
+        doc.add(new LongField("datefield", DateTools.round(date.getTime(), Resolution.DAY), Field.Store.YES));
         iwriter.addDocument(doc);
         
         iwriter.close();
@@ -155,6 +167,17 @@ public abstract class AbstractLuceneQueryVisitorTest extends Assert {
         return lucene.getQuery();
     }
     
+    protected Query createDateQuery(String fieldName, String expression, Resolution resolution) 
+        throws Exception {
+        SearchCondition<SearchBean> filter = getParser().parse(expression);
+        LuceneQueryVisitor<SearchBean> lucene = 
+            new LuceneQueryVisitor<SearchBean>("ct", fieldName);
+        lucene.setPrimitiveFieldTypeMap(Collections.<String, Class<?>>singletonMap(fieldName, Date.class));
+        lucene.setDateResolution(resolution);
+        lucene.visit(filter);
+        return lucene.getQuery();
+    }
+    
     protected Query createPhraseQuery(String fieldName, String expression) throws Exception {
         SearchCondition<SearchBean> filter = getParser().parse(expression);
         LuceneQueryVisitor<SearchBean> lucene = 
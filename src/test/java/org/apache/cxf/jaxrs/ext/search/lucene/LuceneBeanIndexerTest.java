@@ -0,0 +1,367 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.ext.search.lucene;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.cxf.jaxrs.ext.search.SearchParseException;
+import org.apache.cxf.jaxrs.ext.search.fiql.FiqlParser;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.DateTools.Resolution;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Version;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LuceneBeanIndexerTest extends Assert {
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    
+    private DirectoryReader ireader;
+    private IndexSearcher isearcher;
+    private Directory directory;
+    private FiqlParser<Book> parser = new FiqlParser<Book>(Book.class);
+    private LuceneQueryVisitor<Book> visitor = new LuceneQueryVisitor<Book>();
+    private LuceneBeanIndexer<Book> indexer = new LuceneBeanIndexer<Book>(visitor);
+    
+    @Before
+    public void setUp() throws Exception {
+        visitor.setDateResolution(Resolution.DAY);
+        directory = new RAMDirectory();
+        IndexWriter iwriter = new IndexWriter(directory, 
+            new IndexWriterConfig(Version.LUCENE_40, new StandardAnalyzer(Version.LUCENE_40)));
+        indexer.index(iwriter, Arrays.asList(
+            new Book("Lucene in Action", 475, 49.5, new Date(100 * DAY + 1000L), true, Genre.SCIENCE,
+                     new Author("Ann"), "search", "java"),
+            new Book("Java Concurrency", 403, 35.0, new Date(200 * DAY + 2000L), false, Genre.SCIENCE,
+                     new Author("Bob"), "java"),
+            new Book("The Hobbit", 310, 9.99, new Date(300 * DAY + 3000L), true, Genre.FICTION,
+                     new Author("Ann"))));
+        iwriter.close();
+        ireader = DirectoryReader.open(directory);
+        isearcher = new IndexSearcher(ireader);
+    }
+    
+    @After
+    public void tearDown() throws Exception {
+        ireader.close();
+        directory.close();
+    }
+    
+    @Test
+    public void testStrings() throws Exception {
+        assertEquals(Arrays.asList("The Hobbit"), search("title==The Hobbit"));
+        assertEquals(Arrays.asList("Java Concurrency"), search("title==Java*"));
+    }
+    
+    @Test
+    public void testStringRanges() throws Exception {
+        // the string terms are compared lexicographically
+        assertEquals(Arrays.asList("Lucene in Action", "Java Concurrency"), search("title=lt=M"));
+        assertEquals(Arrays.asList("Lucene in Action", "The Hobbit"), search("title=ge=Lucene in Action"));
+        assertEquals(Arrays.asList("Java Concurrency"), search("author.name=gt=Ann"));
+        assertEquals(Arrays.<String>asList(), search("title=gt=abc"));
+    }
+    
+    @Test
+    public void testNumbers() throws Exception {
+        assertEquals(Arrays.asList("Lucene in Action", "Java Concurrency"), search("pages=gt=400"));
+        assertEquals(Arrays.asList("Java Concurrency"), search("pages==403"));
+        assertEquals(Arrays.asList("Java Concurrency", "The Hobbit"), search("price=le=35.0"));
+    }
+    
+    @Test
+    public void testDates() throws Exception {
+        // the dates are rounded to days 
+        assertEquals(Arrays.asList("Lucene in Action"), search("published==1970-04-11"));
+        assertEquals(Arrays.asList("Java Concurrency", "The Hobbit"), search("published=gt=1970-04-11"));
+    }
+    
+    @Test
+    public void testBooleansAndEnums() throws Exception {
+        assertEquals(Arrays.asList("Lucene in Action", "The Hobbit"), search("available==true"));
+        assertEquals(Arrays.asList("The Hobbit"), search("genre==FICTION"));
+        assertEquals(Arrays.asList("Lucene in Action", "Java Concurrency"), search("genre!=FICTION"));
+    }
+    
+    @Test
+    public void testCollections() throws Exception {
+        assertEquals(Arrays.asList("Lucene in Action", "Java Concurrency"), search("tags==java"));
+        assertEquals(Arrays.asList("Lucene in Action"), search("tags==search;tags==java"));
+    }
+    
+    @Test(expected = SearchParseException.class)
+    public void testCollectionCheck() throws Exception {
+        visitor.toQuery(parser.parse("count(tags)=gt=1"));
+    }
+    
+    @Test
+    public void testNestedBeans() throws Exception {
+        assertEquals(Arrays.asList("Lucene in Action", "The Hobbit"), search("author.name==Ann"));
+    }
+    
+    @Test
+    public void testSortByDocValues() throws Exception {
+        assertEquals(Arrays.asList("The Hobbit", "Java Concurrency", "Lucene in Action"), 
+                     sort(new SortField("pages", SortField.Type.INT)));
+        assertEquals(Arrays.asList("The Hobbit", "Java Concurrency", "Lucene in Action"), 
+                     sort(new SortField("price", SortField.Type.DOUBLE)));
+        assertEquals(Arrays.asList("The Hobbit", "Java Concurrency", "Lucene in Action"), 
+                     sort(new SortField("published", SortField.Type.LONG, true)));
+        assertEquals(Arrays.asList("Java Concurrency", "Lucene in Action", "The Hobbit"), 
+                     sort(new SortField("title", SortField.Type.STRING)));
+    }
+    
+    @Test
+    public void testFieldNames() throws Exception {
+        LuceneQueryVisitor<Book> mappedVisitor = 
+            new LuceneQueryVisitor<Book>(Collections.singletonMap("title", "name"));
+        Document doc = new LuceneBeanIndexer<Book>(mappedVisitor).toDocument(
+            new Book("The Hobbit", 310, 9.99, new Date(0), true, Genre.FICTION, null));
+        assertEquals("The Hobbit", doc.get("name"));
+        assertNull(doc.get("title"));
+        assertNull(doc.get("tags"));
+        assertNull(doc.get("author.name"));
+    }
+    
+    @Test
+    public void testPrimitiveFieldTypes() throws Exception {
+        LuceneQueryVisitor<Pages> pagesVisitor = new LuceneQueryVisitor<Pages>();
+        LuceneBeanIndexer<Pages> pagesIndexer = new LuceneBeanIndexer<Pages>(pagesVisitor);
+        assertEquals(1, pagesIndexer.toDocument(new Pages(1)).getField("pages").numericValue());
+        
+        pagesVisitor.setPrimitiveFieldTypeMap(Collections.<String, Class<?>>singletonMap("pages", Long.class));
+        assertEquals(1L, pagesIndexer.toDocument(new Pages(1)).getField("pages").numericValue());
+    }
+    
+    @Test
+    public void testPrimitiveArrays() throws Exception {
+        Document doc = new LuceneBeanIndexer<Ratings>(new LuceneQueryVisitor<Ratings>()).toDocument(
+            new Ratings(new int[]{5, 3}, new char[]{'a', 'b'}));
+        IndexableField[] ratings = doc.getFields("ratings");
+        assertEquals(2, ratings.length);
+        assertEquals(5, ratings[0].numericValue());
+        assertEquals(3, ratings[1].numericValue());
+        assertArrayEquals(new String[]{"a", "b"}, doc.getValues("grades"));
+    }
+    
+    @Test
+    public void testMapBack() throws Exception {
+        LuceneSearchExecutor<Book> executor = new LuceneSearchExecutor<Book>(visitor, Book.class);
+        List<Book> books = executor.search(isearcher, parser.parse("title==The Hobbit"), 10).getResults();
+        assertEquals(1, books.size());
+        Book book = books.get(0);
+        assertEquals(Integer.valueOf(310), book.getPages());
+        assertEquals(9.99, book.getPrice(), 0.0);
+        assertEquals(new Date(300 * DAY), book.getPublished());
+        assertEquals(Boolean.TRUE, book.getAvailable());
+        assertEquals(Genre.FICTION, book.getGenre());
+        assertEquals(Collections.emptyList(), book.getTags());
+    }
+    
+    private List<String> search(String expression) throws Exception {
+        Query query = visitor.toQuery(parser.parse(expression));
+        return toTitles(isearcher.search(query, 10).scoreDocs);
+    }
+    
+    private List<String> sort(SortField sortField) throws Exception {
+        sortField.setUseIndexValues(true);
+        return toTitles(isearcher.search(new MatchAllDocsQuery(), 10, new Sort(sortField)).scoreDocs);
+    }
+    
+    private List<String> toTitles(ScoreDoc[] hits) throws Exception {
+        List<String> titles = new ArrayList<String>();
+        for (ScoreDoc hit : hits) {
+            titles.add(isearcher.doc(hit.doc).get("title"));
+        }
+        return titles;
+    }
+    
+    public enum Genre {
+        FICTION, SCIENCE
+    }
+    
+    public static class Pages {
+        private int pages;
+        
+        public Pages(int pages) {
+            this.pages = pages;
+        }
+        
+        public int getPages() {
+            return pages;
+        }
+        
+        public void setPages(int pages) {
+            this.pages = pages;
+        }
+    }
+    
+    public static class Ratings {
+        private int[] ratings;
+        private char[] grades;
+        
+        public Ratings(int[] ratings, char[] grades) {
+            this.ratings = ratings;
+            this.grades = grades;
+        }
+        
+        public int[] getRatings() {
+            return ratings;
+        }
+        
+        public void setRatings(int[] ratings) {
+            this.ratings = ratings;
+        }
+        
+        public char[] getGrades() {
+            return grades;
+        }
+        
+        public void setGrades(char[] grades) {
+            this.grades = grades;
+        }
+    }
+    
+    public static class Author {
+        private String name;
+        
+        public Author() {
+        }
+        
+        public Author(String name) {
+            this.name = name;
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+    
+    public static class Book {
+        private String title;
+        private Integer pages;
+        private Double price;
+        private Date published;
+        private Boolean available;
+        private Genre genre;
+        private Author author;
+        private List<String> tags = new ArrayList<String>();
+        
+        public Book() {
+        }
+        
+        public Book(String title, Integer pages, Double price, Date published, Boolean available, 
+                    Genre genre, Author author, String... tags) {
+            this.title = title;
+            this.pages = pages;
+            this.price = price;
+            this.published = published;
+            this.available = available;
+            this.genre = genre;
+            this.author = author;
+            this.tags = new ArrayList<String>(Arrays.asList(tags));
+        }
+        
+        public String getTitle() {
+            return title;
+        }
+        
+        public void setTitle(String title) {
+            this.title = title;
+        }
+        
+        public Integer getPages() {
+            return pages;
+        }
+        
+        public void setPages(Integer pages) {
+            this.pages = pages;
+        }
+        
+        public Double getPrice() {
+            return price;
+        }
+        
+        public void setPrice(Double price) {
+            this.price = price;
+        }
+        
+        public Date getPublished() {
+            return published;
+        }
+        
+        public void setPublished(Date published) {
+            this.published = published;
+        }
+        
+        public Boolean getAvailable() {
+            return available;
+        }
+        
+        public void setAvailable(Boolean available) {
+            this.available = available;
+        }
+        
+        public Genre getGenre() {
+            return genre;
+        }
+        
+        public void setGenre(Genre genre) {
+            this.genre = genre;
+        }
+        
+        public Author getAuthor() {
+            return author;
+        }
+        
+        public void setAuthor(Author author) {
+            this.author = author;
+        }
+        
+        public List<String> getTags() {
+            return tags;
+        }
+        
+        public void setTags(List<String> tags) {
+            this.tags = tags;
+        }
+    }
+}
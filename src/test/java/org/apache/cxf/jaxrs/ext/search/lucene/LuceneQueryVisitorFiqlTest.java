@@ -18,10 +18,22 @@
  */
 package org.apache.cxf.jaxrs.ext.search.lucene;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import org.apache.cxf.jaxrs.ext.search.SearchBean;
+import org.apache.cxf.jaxrs.ext.search.SearchCondition;
 import org.apache.cxf.jaxrs.ext.search.SearchConditionParser;
 import org.apache.cxf.jaxrs.ext.search.fiql.FiqlParser;
+import org.apache.lucene.document.DateTools.Resolution;
+import org.apache.lucene.search.AutomatonQuery;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.PrefixQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.WildcardQuery;
 import org.junit.Test;
 
 public class LuceneQueryVisitorFiqlTest extends AbstractLuceneQueryVisitorTest {
@@ -43,7 +55,7 @@ public class LuceneQueryVisitorFiqlTest extends AbstractLuceneQueryVisitorTest {
     public void testTextContentMatchNotEqualPositive() throws Exception {
         
         Query query = createTermQuery("contents", "ct!=bar");
-        doTestNoMatch(query);
+        doTestTextContentMatchWithQuery(query);
             
     }
     
@@ -115,6 +127,41 @@ public class LuceneQueryVisitorFiqlTest extends AbstractLuceneQueryVisitorTest {
         doTestIntContentMatchWithQuery(query);
     }
     
+    @Test
+    public void testLongContentMatch() throws Exception {
+        doTestTextContentMatchWithQuery(
+            createTermQueryWithFieldClass("longfield", "ct==4000000000", Long.class));
+        doTestTextContentMatchWithQuery(
+            createTermQueryWithFieldClass("longfield", "ct=gt=3000000000", long.class));
+        doTestNoMatch(createTermQueryWithFieldClass("longfield", "ct=lt=4000000000", Long.class));
+    }
+    
+    @Test
+    public void testDoubleContentMatch() throws Exception {
+        doTestTextContentMatchWithQuery(
+            createTermQueryWithFieldClass("doublefield", "ct==4.5", Double.class));
+        doTestTextContentMatchWithQuery(
+            createTermQueryWithFieldClass("doublefield", "ct=le=4.6", Double.class));
+        doTestNoMatch(createTermQueryWithFieldClass("doublefield", "ct=gt=4.5", Double.class));
+    }
+    
+    @Test
+    public void testFloatContentMatch() throws Exception {
+        doTestTextContentMatchWithQuery(createTermQueryWithFieldClass("floatfield", "ct==4.5", Float.class));
+        doTestTextContentMatchWithQuery(
+            createTermQueryWithFieldClass("floatfield", "ct=ge=4.5", float.class));
+        doTestNoMatch(createTermQueryWithFieldClass("floatfield", "ct=lt=4.5", Float.class));
+    }
+    
+    @Test
+    public void testDateContentMatch() throws Exception {
+        doTestTextContentMatchWithQuery(createDateQuery("datefield", "ct==2013-01-15", Resolution.DAY));
+        doTestTextContentMatchWithQuery(createDateQuery("datefield", "ct=gt=2013-01-14", Resolution.DAY));
+        doTestTextContentMatchWithQuery(createDateQuery("datefield", "ct=lt=2013-01-16", Resolution.DAY));
+        doTestNoMatch(createDateQuery("datefield", "ct=gt=2013-01-15", Resolution.DAY));
+        doTestNoMatch(createDateQuery("datefield", "ct=lt=2013-01-15", Resolution.DAY));
+    }
+    
     @Test
     public void testTextAndContentMatch() throws Exception {
         Query query = createTermQuery("contents==name;contents==text");
@@ -189,6 +236,87 @@ public class LuceneQueryVisitorFiqlTest extends AbstractLuceneQueryVisitorTest {
         doTestTextContentMatchWithQuery(query);
     }
     
+    @Test
+    public void testTrailingWildcardAsPrefixQuery() throws Exception {
+        Query query = createTermQuery("contents==tex*");
+        assertTrue(query instanceof ConstantScoreQuery);
+        assertTrue(((ConstantScoreQuery)query).getQuery() instanceof PrefixQuery);
+        doTestTextContentMatchWithQuery(query);
+        
+        query = createTermQuery("contents==t*t");
+        assertTrue(((ConstantScoreQuery)query).getQuery() instanceof WildcardQuery);
+        doTestTextContentMatchWithQuery(query);
+    }
+    
+    @Test
+    public void testSameFieldTermsCollapsed() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2 * BooleanQuery.getMaxClauseCount(); i++) {
+            sb.append("contents==term").append(i).append(",");
+        }
+        sb.append("contents==text,intfield==3");
+        Query query = createTermQuery(sb.toString());
+        doTestTextContentMatchWithQuery(query);
+        
+        BooleanQuery booleanQuery = (BooleanQuery)((ConstantScoreQuery)query).getQuery(); 
+        assertEquals(2, booleanQuery.clauses().size());
+        assertTrue(booleanQuery.clauses().get(0).getQuery() instanceof AutomatonQuery);
+        
+        doTestNoMatch(createTermQuery(sb.toString().replace("contents==text", "contents==txt")));
+    }
+    
+    @Test
+    public void testScoringQuery() throws Exception {
+        LuceneQueryVisitor<SearchBean> lucene = new LuceneQueryVisitor<SearchBean>();
+        lucene.setScoring(true);
+        Query query = lucene.toQuery(getParser().parse("contents==text"));
+        assertTrue(query instanceof TermQuery);
+        doTestTextContentMatchWithQuery(query);
+    }
+    
+    @Test
+    public void testVisitorReuse() throws Exception {
+        LuceneQueryVisitor<SearchBean> lucene = new LuceneQueryVisitor<SearchBean>("ct", "intfield");
+        getParser().parse("ct=gt=3").accept(lucene);
+        doTestIntContentMatchWithQuery(lucene.getQuery());
+        getParser().parse("ct=gt=5").accept(lucene);
+        doTestNoMatch(lucene.getQuery());
+    }
+    
+    @Test
+    public void testSharedVisitor() throws Exception {
+        final LuceneQueryVisitor<SearchBean> lucene = new LuceneQueryVisitor<SearchBean>("ct", "intfield");
+        final SearchCondition<SearchBean> match = getParser().parse("ct=ge=4;ct=lt=5");
+        final SearchCondition<SearchBean> noMatch = getParser().parse("ct=ge=5,ct=lt=4");
+        final List<Query> queries = Collections.synchronizedList(new ArrayList<Query>());
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            final boolean matching = i % 2 == 0;
+            threads[i] = new Thread() {
+                public void run() {
+                    for (int j = 0; j < 100; j++) {
+                        queries.add(lucene.toQuery(matching ? match : noMatch));
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(400, queries.size());
+        int matches = 0;
+        for (Query query : queries) {
+            if (query.equals(lucene.toQuery(match))) {
+                doTestIntContentMatchWithQuery(query);
+                matches++;
+            } else {
+                doTestNoMatch(query);
+            }
+        }
+        assertEquals(200, matches);
+    }
+    
     @Override
     protected SearchConditionParser<SearchBean> getParser() {
         return new FiqlParser<SearchBean>(SearchBean.class);
@@ -0,0 +1,132 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.ext.search.lucene;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.cxf.jaxrs.ext.search.SearchBean;
+import org.apache.cxf.jaxrs.ext.search.fiql.FiqlParser;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.IntField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Version;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LuceneQueryVisitorNegationTest extends Assert {
+    private static final String[] NAMES = {"a", "b", "c", "d", "e"};
+    
+    private DirectoryReader ireader;
+    private IndexSearcher isearcher;
+    private Directory directory;
+    private FiqlParser<SearchBean> parser = new FiqlParser<SearchBean>(SearchBean.class);
+    private LuceneQueryVisitor<SearchBean> visitor = new LuceneQueryVisitor<SearchBean>();
+    
+    @Before
+    public void setUp() throws Exception {
+        directory = new RAMDirectory();
+        IndexWriterConfig config = 
+            new IndexWriterConfig(Version.LUCENE_40, new StandardAnalyzer(Version.LUCENE_40));
+        IndexWriter iwriter = new IndexWriter(directory, config);
+        for (int i = 0; i < NAMES.length; i++) {
+            Document doc = new Document();
+            doc.add(new StringField("name", NAMES[i], Field.Store.YES));
+            doc.add(new IntField("intfield", i, Field.Store.YES));
+            iwriter.addDocument(doc);
+        }
+        iwriter.close();
+        ireader = DirectoryReader.open(directory);
+        isearcher = new IndexSearcher(ireader);
+        
+        visitor.setPrimitiveFieldTypeMap(
+            Collections.<String, Class<?>>singletonMap("intfield", Integer.class));
+    }
+    
+    @After
+    public void tearDown() throws Exception {
+        ireader.close();
+        directory.close();
+    }
+    
+    @Test
+    public void testNotEquals() throws Exception {
+        assertEquals(Arrays.asList("b", "c", "d", "e"), search("name!=a"));
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e"), search("name!=f"));
+    }
+    
+    @Test
+    public void testNotEqualsAnd() throws Exception {
+        assertEquals(Arrays.asList("c", "d", "e"), search("name!=a;name!=b"));
+        assertEquals(Arrays.asList("d", "e"), search("intfield=gt=1;name!=c"));
+        assertEquals(Collections.<String>emptyList(), search("name==a;name!=a"));
+    }
+    
+    @Test
+    public void testNotEqualsOr() throws Exception {
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e"), search("name!=a,name!=b"));
+        assertEquals(Arrays.asList("b", "c", "d", "e"), search("name!=a,name!=a"));
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e"), search("name!=a,intfield==0"));
+        assertEquals(Arrays.asList("b", "c", "d", "e"), search("name!=a,intfield==1"));
+    }
+    
+    @Test
+    public void testNestedNotEquals() throws Exception {
+        assertEquals(Arrays.asList("a", "c", "d", "e"), search("(name!=a;name!=b),name==a"));
+        assertEquals(Arrays.asList("c", "d", "e"), search("(name!=a,name!=a);(name!=b;intfield=ge=0)"));
+        assertEquals(Arrays.asList("b", "e"), search("((name!=a;name!=c),name==c);(name!=c;name!=d)"));
+    }
+    
+    @Test
+    public void testNegationPulledIntoParent() throws Exception {
+        Query query = visitor.toQuery(parser.parse("intfield=gt=1;name!=c"));
+        assertFalse(containsMatchAll(query));
+        query = visitor.toQuery(parser.parse("name!=a;name!=b"));
+        assertTrue(containsMatchAll(query));
+    }
+    
+    private static boolean containsMatchAll(Query query) {
+        return query.toString().contains(new MatchAllDocsQuery().toString());
+    }
+    
+    private List<String> search(String expression) throws Exception {
+        ScoreDoc[] hits = isearcher.search(visitor.toQuery(parser.parse(expression)), null, 1000).scoreDocs;
+        List<String> names = new ArrayList<String>();
+        for (ScoreDoc hit : hits) {
+            names.add(isearcher.doc(hit.doc).get("name"));
+        }
+        Collections.sort(names);
+        return names;
+    }
+}
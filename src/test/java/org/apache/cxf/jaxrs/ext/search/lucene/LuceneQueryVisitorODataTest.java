@@ -43,7 +43,7 @@ public class LuceneQueryVisitorODataTest extends AbstractLuceneQueryVisitorTest
     public void testTextContentMatchNotEqualPositive() throws Exception {
         
         Query query = createTermQuery("contents", "ct ne 'bar'");
-        doTestNoMatch(query);
+        doTestTextContentMatchWithQuery(query);
             
     }
     
@@ -0,0 +1,352 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.ext.search.lucene;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.cxf.jaxrs.ext.search.SearchBean;
+import org.apache.cxf.jaxrs.ext.search.SearchCondition;
+import org.apache.cxf.jaxrs.ext.search.SearchParseException;
+import org.apache.cxf.jaxrs.ext.search.fiql.FiqlParser;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.IntField;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Version;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LuceneSearchExecutorTest extends Assert {
+    private static final int SIZE = 25;
+    
+    private DirectoryReader ireader;
+    private IndexSearcher isearcher;
+    private Directory directory;
+    private FiqlParser<Item> parser = new FiqlParser<Item>(Item.class);
+    private LuceneQueryVisitor<Item> visitor = new LuceneQueryVisitor<Item>();
+    private LuceneSearchExecutor<Item> executor = new LuceneSearchExecutor<Item>(visitor, Item.class);
+    
+    @Before
+    public void setUp() throws Exception {
+        directory = new RAMDirectory();
+        IndexWriter iwriter = createWriter();
+        for (int i = 0; i < SIZE; i++) {
+            iwriter.addDocument(createDocument(i));
+        }
+        iwriter.close();
+        ireader = DirectoryReader.open(directory);
+        isearcher = new IndexSearcher(ireader);
+    }
+    
+    @After
+    public void tearDown() throws Exception {
+        ireader.close();
+        directory.close();
+    }
+    
+    private IndexWriter createWriter() throws Exception {
+        return new IndexWriter(directory, 
+            new IndexWriterConfig(Version.LUCENE_40, new StandardAnalyzer(Version.LUCENE_40)));
+    }
+    
+    private static Document createDocument(int i) {
+        Document doc = new Document();
+        doc.add(new StringField("name", "item" + i, Field.Store.YES));
+        doc.add(new IntField("level", i, Field.Store.YES));
+        doc.add(new LongField("created", i * 1000L, Field.Store.YES));
+        doc.add(new StringField("tags", i % 2 == 0 ? "even" : "odd", Field.Store.YES));
+        doc.add(new StringField("tags", "all", Field.Store.YES));
+        return doc;
+    }
+    
+    @Test
+    public void testPages() throws Exception {
+        SearchCondition<Item> sc = parser.parse("level=lt=20");
+        Set<String> names = new HashSet<String>();
+        List<Integer> pageSizes = new ArrayList<Integer>();
+        String cursor = null;
+        do {
+            LuceneSearchPage<Item> page = executor.search(isearcher, sc, cursor, 7);
+            assertEquals(20, page.getTotalHits());
+            pageSizes.add(page.getResults().size());
+            for (Item item : page.getResults()) {
+                assertTrue(item.getLevel() < 20);
+                assertTrue(names.add(item.getName()));
+            }
+            cursor = page.getCursor();
+        } while (cursor != null);
+        assertEquals(Arrays.asList(7, 7, 6), pageSizes);
+        assertEquals(20, names.size());
+    }
+    
+    @Test
+    public void testLastFullPage() throws Exception {
+        LuceneSearchPage<Item> page = executor.search(isearcher, parser.parse("level=lt=5"), 5);
+        assertEquals(5, page.getResults().size());
+        assertNull(page.getCursor());
+    }
+    
+    @Test
+    public void testScoringPages() throws Exception {
+        visitor.setScoring(true);
+        SearchCondition<Item> sc = parser.parse("name==item1*,level==0");
+        LuceneSearchPage<Item> page = executor.search(isearcher, sc, 10);
+        assertEquals(10, page.getResults().size());
+        page = executor.search(isearcher, sc, page.getCursor(), 10);
+        assertEquals(2, page.getResults().size());
+        assertNull(page.getCursor());
+        assertEquals(0, executor.getFilterCacheSize());
+    }
+    
+    @Test
+    public void testFilterCache() throws Exception {
+        executor.search(isearcher, parser.parse("level=ge=10;name==item1*"), 5);
+        executor.search(isearcher, parser.parse("level=ge=10;name==item1*"), 5);
+        executor.search(isearcher, parser.parse("level=ge=11;name==item1*"), 5);
+        assertEquals(2, executor.getFilterCacheSize());
+        assertEquals(1, executor.getFilterCacheHitCount());
+        assertEquals(2, executor.getFilterCacheMissCount());
+    }
+    
+    @Test
+    public void testFilterCacheAfterReopen() throws Exception {
+        SearchCondition<Item> sc = parser.parse("level=ge=20");
+        assertEquals(5, executor.search(isearcher, sc, 5).getTotalHits());
+        
+        IndexWriter iwriter = createWriter();
+        iwriter.addDocument(createDocument(SIZE));
+        iwriter.close();
+        DirectoryReader newReader = DirectoryReader.openIfChanged(ireader);
+        assertNotNull(newReader);
+        ireader.close();
+        ireader = newReader;
+        isearcher = new IndexSearcher(ireader);
+        
+        assertEquals(6, executor.search(isearcher, sc, 5).getTotalHits());
+        assertEquals(1, executor.getFilterCacheHitCount());
+    }
+    
+    @Test(expected = SearchParseException.class)
+    public void testCursorOfChangedIndex() throws Exception {
+        SearchCondition<Item> sc = parser.parse("level=ge=0");
+        String cursor = executor.search(isearcher, sc, 5).getCursor();
+        
+        IndexWriter iwriter = createWriter();
+        iwriter.addDocument(createDocument(SIZE));
+        iwriter.close();
+        ireader.close();
+        ireader = DirectoryReader.open(directory);
+        isearcher = new IndexSearcher(ireader);
+        
+        executor.search(isearcher, sc, cursor, 5);
+    }
+    
+    @Test(expected = SearchParseException.class)
+    public void testInvalidCursor() throws Exception {
+        executor.search(isearcher, parser.parse("level=ge=0"), "abc", 5);
+    }
+    
+    @Test
+    public void testBeans() throws Exception {
+        List<Item> items = executor.search(isearcher, parser.parse("name==item3"), 5).getResults();
+        assertEquals(1, items.size());
+        Item item = items.get(0);
+        assertEquals("item3", item.getName());
+        assertEquals(Integer.valueOf(3), item.getLevel());
+        assertEquals(new Date(3000L), item.getCreated());
+        assertEquals(Arrays.asList("odd", "all"), item.getTags());
+    }
+    
+    @Test
+    public void testSearchBeans() throws Exception {
+        LuceneSearchExecutor<SearchBean> beanExecutor = 
+            new LuceneSearchExecutor<SearchBean>(new LuceneQueryVisitor<SearchBean>(), SearchBean.class);
+        FiqlParser<SearchBean> beanParser = new FiqlParser<SearchBean>(SearchBean.class);
+        List<SearchBean> beans = 
+            beanExecutor.search(isearcher, beanParser.parse("name==item4"), 5).getResults();
+        assertEquals(1, beans.size());
+        assertEquals("item4", beans.get(0).get("name"));
+        assertEquals("4", beans.get(0).get("level"));
+        assertEquals("even", beans.get(0).get("tags"));
+    }
+    
+    @Test
+    public void testArraysCharactersAndNestedBeans() throws Exception {
+        LuceneQueryVisitor<Record> recordVisitor = new LuceneQueryVisitor<Record>();
+        Record record = new Record();
+        record.setName("r1");
+        record.setGrade('A');
+        record.setScores(new Integer[]{3, 1, 2});
+        record.setLabels(new String[]{"x", "y"});
+        record.setOwner(new Owner("alice"));
+        record.setPreviousOwners(Arrays.asList(new Owner("bob")));
+        Directory recordDirectory = new RAMDirectory();
+        IndexWriter iwriter = new IndexWriter(recordDirectory, 
+            new IndexWriterConfig(Version.LUCENE_40, new StandardAnalyzer(Version.LUCENE_40)));
+        new LuceneBeanIndexer<Record>(recordVisitor).index(iwriter, Arrays.asList(record));
+        iwriter.close();
+        DirectoryReader recordReader = DirectoryReader.open(recordDirectory);
+        try {
+            LuceneSearchExecutor<Record> recordExecutor = 
+                new LuceneSearchExecutor<Record>(recordVisitor, Record.class);
+            List<Record> records = recordExecutor.search(new IndexSearcher(recordReader), 
+                new FiqlParser<Record>(Record.class).parse("name==r1"), 5).getResults();
+            assertEquals(1, records.size());
+            Record result = records.get(0);
+            assertEquals('A', result.getGrade());
+            assertArrayEquals(new Integer[]{3, 1, 2}, result.getScores());
+            assertArrayEquals(new String[]{"x", "y"}, result.getLabels());
+            assertEquals("alice", result.getOwner().getName());
+            assertNull(result.getPreviousOwners());
+        } finally {
+            recordReader.close();
+            recordDirectory.close();
+        }
+    }
+    
+    public static class Item {
+        private String name;
+        private Integer level;
+        private Date created;
+        private List<String> tags;
+        
+        public String getName() {
+            return name;
+        }
+        
+        public void setName(String name) {
+            this.name = name;
+        }
+        
+        public Integer getLevel() {
+            return level;
+        }
+        
+        public void setLevel(Integer level) {
+            this.level = level;
+        }
+        
+        public Date getCreated() {
+            return created;
+        }
+        
+        public void setCreated(Date created) {
+            this.created = created;
+        }
+        
+        public List<String> getTags() {
+            return tags;
+        }
+        
+        public void setTags(List<String> tags) {
+            this.tags = tags;
+        }
+    }
+    
+    public static class Record {
+        private String name;
+        private char grade;
+        private Integer[] scores;
+        private String[] labels;
+        private Owner owner;
+        private List<Owner> previousOwners;
+        
+        public String getName() {
+            return name;
+        }
+        
+        public void setName(String name) {
+            this.name = name;
+        }
+        
+        public char getGrade() {
+            return grade;
+        }
+        
+        public void setGrade(char grade) {
+            this.grade = grade;
+        }
+        
+        public Integer[] getScores() {
+            return scores;
+        }
+        
+        public void setScores(Integer[] scores) {
+            this.scores = scores;
+        }
+        
+        public String[] getLabels() {
+            return labels;
+        }
+        
+        public void setLabels(String[] labels) {
+            this.labels = labels;
+        }
+        
+        public Owner getOwner() {
+            return owner;
+        }
+        
+        public void setOwner(Owner owner) {
+            this.owner = owner;
+        }
+        
+        public List<Owner> getPreviousOwners() {
+            return previousOwners;
+        }
+        
+        public void setPreviousOwners(List<Owner> previousOwners) {
+            this.previousOwners = previousOwners;
+        }
+    }
+    
+    public static class Owner {
+        private String name;
+        
+        public Owner() {
+        }
+        
+        public Owner(String name) {
+            this.name = name;
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -18,13 +18,19 @@
  */
 package org.apache.cxf.jaxrs.ext.search.sql;
 
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 
+import org.apache.cxf.jaxrs.ext.search.KeysetToken;
 import org.apache.cxf.jaxrs.ext.search.SearchBean;
 import org.apache.cxf.jaxrs.ext.search.SearchCondition;
 import org.apache.cxf.jaxrs.ext.search.SearchParseException;
 import org.apache.cxf.jaxrs.ext.search.fiql.FiqlParser;
+import org.apache.cxf.jaxrs.ext.search.visitor.QueryTemplateCache;
 import org.apache.cxf.jaxrs.ext.search.visitor.SBThreadLocalVisitorState;
 
 import org.junit.Assert;
@@ -162,6 +168,136 @@ public class SQLPrinterVisitorTest extends Assert {
         assertTrue("SELECT NAMES FROM table WHERE NAMES = 'test'".equals(sql));
     }
     
+    @Test
+    public void testSQLParameterized() throws SearchParseException {
+        SearchCondition<Condition> filter = parser.parse("(name==test*,level==18);(name==test1,level!=19)");
+        SQLPrinterVisitor<Condition> visitor = new SQLPrinterVisitor<Condition>("table");
+        visitor.setParameterized(true);
+        filter.accept(visitor);
+        assertEquals("SELECT * FROM table WHERE ((name LIKE ?) OR (level = ?))"
+                     + " AND ((name = ?) OR (level <> ?))", visitor.getQuery());
+        assertEquals(Arrays.<Object>asList("test%", 18, "test1", 19), visitor.getParameters());
+    }
+    
+    @Test
+    public void testSQLNamedParameters() throws Exception {
+        SearchCondition<Condition> filter = parser.parse("name==test;time=lt=2013-01-01");
+        SQLPrinterVisitor<Condition> visitor = new SQLPrinterVisitor<Condition>("table");
+        visitor.setParameterized(true);
+        visitor.setNamedParameters(true);
+        filter.accept(visitor);
+        assertEquals("SELECT * FROM table WHERE (name = :p1) AND (time < :p2)", visitor.getQuery());
+        List<Object> params = visitor.getParameters();
+        assertEquals("test", params.get(0));
+        assertTrue(params.get(1) instanceof Timestamp);
+        assertEquals(new SimpleDateFormat("yyyy-MM-dd").parse("2013-01-01").getTime(), 
+                     ((Timestamp)params.get(1)).getTime());
+    }
+    
+    @Test
+    public void testSQLKeysetQuery() throws SearchParseException {
+        SQLPrinterVisitor<Condition> visitor = new SQLPrinterVisitor<Condition>("table");
+        parser.parse("level=gt=10").accept(visitor);
+        assertEquals("SELECT * FROM table WHERE level > '10' ORDER BY name ASC, level ASC LIMIT 20", 
+                     visitor.getKeysetQuery(Arrays.asList("name", "level"), true, null, 20));
+        
+        parser.parse("level=gt=10").accept(visitor);
+        assertEquals("SELECT * FROM table WHERE (level > '10') AND (name > 'o''neil' OR (name = 'o''neil'"
+                     + " AND (level > '12'))) ORDER BY name ASC, level ASC LIMIT 20", 
+                     visitor.getKeysetQuery(Arrays.asList("name", "level"), true, 
+                                            KeysetToken.encode("o'neil", 12), 20));
+    }
+    
+    @Test
+    public void testSQLParameterizedKeysetQuery() throws SearchParseException {
+        SQLPrinterVisitor<Condition> visitor = new SQLPrinterVisitor<Condition>("table");
+        visitor.setParameterized(true);
+        parser.parse("name==test*").accept(visitor);
+        assertEquals("SELECT * FROM table WHERE (name LIKE ?) AND (level < ?) ORDER BY level DESC", 
+                     visitor.getKeysetQuery(Collections.singletonList("level"), false, 
+                                            KeysetToken.encode(12), 0));
+        assertEquals(Arrays.<Object>asList("test%", 12), visitor.getParameters());
+    }
+    
+    @Test
+    public void testSQLKeysetQueryWithCustomLimit() throws SearchParseException {
+        SQLPrinterVisitor<Condition> visitor = new SQLPrinterVisitor<Condition>("table") {
+            @Override
+            protected void appendLimit(StringBuilder sb, int limit) {
+                sb.append(" FETCH FIRST ").append(limit).append(" ROWS ONLY");
+            }
+        };
+        parser.parse("level=gt=10").accept(visitor);
+        assertEquals("SELECT * FROM table WHERE level > '10' ORDER BY level ASC FETCH FIRST 20 ROWS ONLY", 
+                     visitor.getKeysetQuery(Collections.singletonList("level"), true, null, 20));
+    }
+    
+    @Test(expected = SearchParseException.class)
+    public void testSQLInvalidKeysetToken() throws SearchParseException {
+        SQLPrinterVisitor<Condition> visitor = new SQLPrinterVisitor<Condition>("table");
+        parser.parse("level=gt=10").accept(visitor);
+        visitor.getKeysetQuery(Collections.singletonList("level"), true, "notatoken", 10);
+    }
+    
+    @Test
+    public void testSQLParameterizedWildcardStringMatch() throws SearchParseException {
+        SearchCondition<Condition> filter = parser.parse("name==test;level=gt=10");
+        SQLPrinterVisitor<Condition> visitor = new SQLPrinterVisitor<Condition>("table");
+        visitor.setParameterized(true);
+        visitor.setWildcardStringMatch(true);
+        filter.accept(visitor);
+        assertEquals("SELECT * FROM table WHERE (name LIKE ?) AND (level > ?)", visitor.getQuery());
+        assertEquals(Arrays.<Object>asList("%test%", 10), visitor.getParameters());
+    }
+    
+    @Test
+    public void testSQLParameterizedReuse() throws SearchParseException {
+        SQLPrinterVisitor<Condition> visitor = new SQLPrinterVisitor<Condition>("table");
+        visitor.setParameterized(true);
+        parser.parse("name==a;level==1").accept(visitor);
+        assertEquals("SELECT * FROM table WHERE (name = ?) AND (level = ?)", visitor.getQuery());
+        
+        parser.parse("level==2").accept(visitor);
+        assertEquals("SELECT * FROM table WHERE level = ?", visitor.getQuery());
+        assertEquals(Collections.<Object>singletonList(2), visitor.getParameters());
+        assertTrue(visitor.getParameters().isEmpty());
+    }
+    
+    @Test
+    public void testSQLParameterizedWithSearchBean() throws SearchParseException {
+        FiqlParser<SearchBean> beanParser = new FiqlParser<SearchBean>(SearchBean.class);
+        SearchCondition<SearchBean> filter = beanParser.parse("name==ami*;level=gt=10");
+        SQLPrinterVisitor<SearchBean> visitor = new SQLPrinterVisitor<SearchBean>("table");
+        visitor.setParameterized(true);
+        filter.accept(visitor);
+        assertEquals("SELECT * FROM table WHERE (name LIKE ?) AND (level > ?)", visitor.getQuery());
+        assertEquals(Arrays.<Object>asList("ami%", "10"), visitor.getParameters());
+    }
+    
+    @Test
+    public void testSQLTemplateCache() throws SearchParseException {
+        SQLPrinterVisitor<Condition> visitor = new SQLPrinterVisitor<Condition>("table");
+        visitor.setParameterized(true);
+        QueryTemplateCache<String> cache = new QueryTemplateCache<String>();
+        visitor.setTemplateCache(cache);
+        
+        parser.parse("name==a*;(level=gt=10,level==5)").accept(visitor);
+        String sql = visitor.getQuery();
+        assertEquals("SELECT * FROM table WHERE (name LIKE ?) AND ((level > ?) OR (level = ?))", sql);
+        assertEquals(Arrays.<Object>asList("a%", 10, 5), visitor.getParameters());
+        assertEquals(1, cache.size());
+        
+        parser.parse("name==b*;(level=gt=20,level==7)").accept(visitor);
+        assertEquals(sql, visitor.getQuery());
+        assertEquals(Arrays.<Object>asList("b%", 20, 7), visitor.getParameters());
+        assertEquals(1, cache.getHitCount());
+        
+        parser.parse("name==b;(level=gt=20,level==7)").accept(visitor);
+        assertEquals("SELECT * FROM table WHERE (name = ?) AND ((level > ?) OR (level = ?))", 
+                     visitor.getQuery());
+        assertEquals(2, cache.size());
+    }
+    
     @Ignore
     public static class Condition {
         private String name;